@@ -0,0 +1,277 @@
+package Android.Tetris;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for the game logic in TetrisEngine, everything but Android
+ * rendering. Compile this directory together with src/ against jmh-core and
+ * jmh-generator-annprocess, then run main() to get ops/s for each benchmark
+ * along with the gc profiler's allocation rate (gc.alloc.rate.norm is bytes
+ * per op).
+ * @author Zach Cotter
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5,
+        time = 1)
+@Measurement(iterations = 5,
+             time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    private static final long SEED = 1;
+    private static final int MIDDLE_ROW = Board.HEIGHT / 2;
+
+    /**
+     * Keeps the Tracer, which is on by default, out of the figures so they
+     * measure the engine alone.
+     */
+    @Setup
+    public void disableTracing() {
+        Tracer.setEnabled(false);
+    }
+
+    /**
+     * A fresh engine with an I piece in motion on an empty board.
+     */
+    @State(Scope.Thread)
+    public static class Open {
+
+        TetrisEngine engine;
+        int spawnX;
+        int spawnY;
+
+        @Setup
+        public void setup() {
+            engine = new TetrisEngine(SEED);
+            TetraTemplate i = TetraTemplate.forIdentifier('i');
+            engine.setCurrent(new Tetra(i));
+            spawnX = i.getSpawnX();
+            spawnY = i.getSpawnY();
+        }
+
+        /**
+         * Moves the Tetra in motion back to where and how it spawned, in
+         * place.
+         */
+        void reset() {
+            Tetra current = engine.getCurrent();
+            current.rotateTo(0,
+                             spawnX - current.getCenterX(),
+                             spawnY - current.getCenterY());
+        }
+    }
+
+    /**
+     * An engine with a horizontal I piece resting on a pile, where any
+     * rotation is blocked.
+     */
+    @State(Scope.Thread)
+    public static class Blocked {
+
+        TetrisEngine engine;
+
+        @Setup
+        public void setup() {
+            engine = new TetrisEngine(SEED);
+            Tetra i = new Tetra(TetraTemplate.forIdentifier('i'));
+            i.rotateTo(0,
+                       0,
+                       MIDDLE_ROW - i.getCenterY());
+            engine.setCurrent(i);
+            Board board = engine.getBoard();
+            for (int y = MIDDLE_ROW + 1; y < Board.HEIGHT; y++) {
+                for (int x = 0; x < Board.WIDTH; x++) {
+                    board.set(x,
+                              y,
+                              TetraTemplate.RED);
+                }
+            }
+        }
+    }
+
+    /**
+     * An engine whose board has the given number of full rows at the bottom
+     * under a ragged pile.
+     */
+    @State(Scope.Thread)
+    public static class Clears {
+
+        @Param({"1", "2", "3", "4"})
+        int rows;
+        TetrisEngine engine;
+
+        @Setup
+        public void setup() {
+            engine = new TetrisEngine(SEED);
+        }
+
+        /**
+         * Rebuilds the pile. Measured on its own by fillBoard so it can be
+         * subtracted from dumpFullRows.
+         */
+        void fill() {
+            Board board = engine.getBoard();
+            board.clear();
+            int top = Board.HEIGHT - rows - 6;
+            for (int y = top; y < Board.HEIGHT; y++) {
+                for (int x = 0; x < Board.WIDTH; x++) {
+                    if (y >= Board.HEIGHT - rows || (x + y) % 3 != 0) {
+                        board.set(x,
+                                  y,
+                                  TetraTemplate.BLUE);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A fixed script of placements: for each piece, clockwise turns and a
+     * lateral offset from spawn before it is dropped.
+     */
+    @State(Scope.Thread)
+    public static class Script implements TetrisEngine.Listener {
+
+        private static final int[][] PLACEMENTS = {{0, -4},
+                                                   {1, 4},
+                                                   {0, -1},
+                                                   {2, 2},
+                                                   {1, -3},
+                                                   {0, 1},
+                                                   {3, 3},
+                                                   {0, -2}};
+        @Param({"100", "1000"})
+        int pieces;
+        int locked;
+
+        @Override
+        public void pileChanged(TetrisEngine engine) {
+            locked++;
+        }
+
+        @Override
+        public void gameOver(TetrisEngine engine) {
+        }
+    }
+
+    @Benchmark
+    public boolean moveLeft(Open s) {
+        if (!s.engine.attemptToMoveCurrent(-1)) {
+            s.reset();
+            return false;
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean moveRight(Open s) {
+        if (!s.engine.attemptToMoveCurrent(1)) {
+            s.reset();
+            return false;
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean moveDown(Open s) {
+        Tetra current = s.engine.getCurrent();
+        if (s.engine.getBoard().collides(current,
+                                         0,
+                                         1)) {
+            s.reset();
+        }
+        return s.engine.attemptToMoveCurrent(0);
+    }
+
+    @Benchmark
+    public int dropDistance(Open s) {
+        return s.engine.getDropDistance();
+    }
+
+    @Benchmark
+    public boolean rotateFree(Open s) {
+        Tetra current = s.engine.getCurrent();
+        if (current.getCenterY() < MIDDLE_ROW) {
+            current.rotateTo(current.getOrientation(),
+                             0,
+                             MIDDLE_ROW - current.getCenterY());
+        }
+        return s.engine.attemptToRotateCurrent(true);
+    }
+
+    @Benchmark
+    public boolean rotateBlocked(Blocked s) {
+        return s.engine.attemptToRotateCurrent(true);
+    }
+
+    @Benchmark
+    public Board fillBoard(Clears s) {
+        s.fill();
+        return s.engine.getBoard();
+    }
+
+    @Benchmark
+    public Board dumpFullRows(Clears s) {
+        s.fill();
+        s.engine.dumpFullRows();
+        return s.engine.getBoard();
+    }
+
+    @Benchmark
+    public Tetra generateTetra(Open s) {
+        return s.engine.generateTetra();
+    }
+
+    @Benchmark
+    public int playScript(Script s) {
+        int score = 0;
+        int placement = 0;
+        s.locked = 0;
+        TetrisEngine engine = null;
+        while (s.locked < s.pieces) {
+            if (engine == null || engine.isGameOver()) {
+                engine = new TetrisEngine(SEED);
+                engine.setListener(s);
+            }
+            int[] step = Script.PLACEMENTS[placement];
+            placement = (placement + 1) % Script.PLACEMENTS.length;
+            for (int turn = 0; turn < step[0]; turn++) {
+                engine.attemptToRotateCurrent(true);
+            }
+            int direction = Integer.signum(step[1]);
+            for (int shift = 0; shift != step[1]; shift += direction) {
+                engine.attemptToMoveCurrent(direction);
+            }
+            engine.attemptToMoveCurrentToMaximumDownwardPosition();
+            engine.tick();
+            score += engine.getScore();
+        }
+        return score;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -1,21 +1,95 @@
 package Android.Tetris;
 
 import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Bundle;
+import android.os.Handler;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.EditText;
 import android.widget.TextView;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * 
  * @author Zach Cotter
  */
-public class AndroidTetris extends Activity {
+public class AndroidTetris extends Activity
+        implements LeaderboardRepository.Listener {
 
+    /**
+     * Broadcast that writes the Tracer's buffer to TRACE_FILE on demand in
+     * debug builds, so a stutter can be captured while it is still in the
+     * buffer:
+     * adb shell am broadcast -a Android.Tetris.DUMP_TRACE
+     */
+    public static final String ACTION_DUMP_TRACE = "Android.Tetris.DUMP_TRACE";
+
+    /**
+     * Paints the game from a render thread on a SurfaceView instead of from
+     * View.onDraw, for comparing frame times.
+     */
+    private static final boolean USE_SURFACE_VIEW = false;
+    /**
+     * Shows latency percentiles over the game, and writes the full
+     * histograms to METRICS_FILE and the Tracer's buffer to TRACE_FILE in the
+     * app's files directory when the game ends.
+     */
+    private static final boolean SHOW_DEBUG_OVERLAY = false;
+    private static final String METRICS_FILE = "latency.txt";
+    private static final String TRACE_FILE = "trace.json";
+    private static final String LEADERBOARD_FILE = "leaderboard.txt";
+    private static final String JOURNAL_FILE = "scores.journal";
+    private TetrisGame game;
+    private DebugOverlay overlay;
+    private ScheduledExecutorService leaderboardWorker;
+    private LeaderboardRepository leaderboard;
+    private ScoreJournal scoreJournal;
+    private TextView highScoreText;
+    private boolean entryPending;
+    private Handler handler;
+    private final Executor uiThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+    };
+    private final Runnable dumpTrace = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                Tracer.dump(new File(getFilesDir(),
+                                     TRACE_FILE));
+            }
+            catch (IOException ex) {
+                Logger logger = Logger.getLogger(AndroidTetris.class.getName());
+                logger.log(Level.SEVERE,
+                           null,
+                           ex);
+            }
+        }
+    };
+    private final BroadcastReceiver traceDumper = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context,
+                              Intent intent) {
+            //writes the file off the UI thread.
+            leaderboardWorker.execute(dumpTrace);
+        }
+    };
     /** Called when the activity is first created. */
-    private TetrisView v;
+    private View v;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -24,29 +98,149 @@ public class AndroidTetris extends Activity {
         this.getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN,
                                   WindowManager.LayoutParams.FLAG_FULLSCREEN);
 
+        handler = new Handler();
+        leaderboardWorker = Executors.newSingleThreadScheduledExecutor();
+        long ttl = LeaderboardRepository.DEFAULT_TTL_MILLIS;
+        leaderboard = new LeaderboardRepository(HighScore.SCORES_URL,
+                                                ttl,
+                                                new File(getFilesDir(),
+                                                         LEADERBOARD_FILE),
+                                                leaderboardWorker,
+                                                uiThread);
+        leaderboard.addListener(this);
+        scoreJournal = new ScoreJournal(HighScore.POST_URL,
+                                        new File(getFilesDir(),
+                                                 JOURNAL_FILE),
+                                        leaderboardWorker);
+        if (BuildConfig.DEBUG) {
+            registerReceiver(traceDumper,
+                             new IntentFilter(ACTION_DUMP_TRACE));
+        }
         setContentView(R.layout.game_over);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (BuildConfig.DEBUG) {
+            unregisterReceiver(traceDumper);
+        }
+        leaderboard.removeListener(this);
+        leaderboardWorker.shutdown();
+    }
+
+    /**
+     * Accessor for the high score table shared by every screen.
+     * @return LeaderboardRepository of this activity
+     */
+    public LeaderboardRepository getLeaderboard() {
+        return leaderboard;
+    }
+
+    @Override
+    public void setContentView(int layoutResID) {
+        highScoreText = null;
+        entryPending = false;
+        super.setContentView(layoutResID);
+    }
+
+    @Override
+    public void setContentView(View view) {
+        highScoreText = null;
+        entryPending = false;
+        super.setContentView(view);
+    }
+
     @Override
     public void onBackPressed() {
         homeButtonPressed(null);
     }
 
     public void startButtonPressed(View view) {
-        v = new TetrisView(this,
-                           getWindowManager().getDefaultDisplay().getWidth(),
-                           getWindowManager().getDefaultDisplay().getHeight());
+        int width = getWindowManager().getDefaultDisplay().getWidth();
+        int height = getWindowManager().getDefaultDisplay().getHeight();
+        if (USE_SURFACE_VIEW) {
+            TetrisSurfaceView surfaceView = new TetrisSurfaceView(this,
+                                                                  width,
+                                                                  height);
+            game = surfaceView.getGame();
+            v = surfaceView;
+        }
+        else {
+            TetrisView tetrisView = new TetrisView(this,
+                                                   width,
+                                                   height);
+            game = tetrisView.getGame();
+            v = tetrisView;
+        }
 
         setContentView(v);
+        if (SHOW_DEBUG_OVERLAY) {
+            View debug = View.inflate(this,
+                                      R.layout.debug,
+                                      null);
+            int match = ViewGroup.LayoutParams.MATCH_PARENT;
+            addContentView(debug,
+                           new ViewGroup.LayoutParams(match,
+                                                      match));
+            TextView text = (TextView) debug.findViewById(R.id.debug);
+            overlay = new DebugOverlay(text,
+                                       game.getMetrics());
+            overlay.start();
+        }
         v.invalidate();
     }
 
+    private void dumpMetrics() {
+        if (overlay == null) {
+            return;
+        }
+        overlay.stop();
+        overlay = null;
+        try {
+            game.getMetrics().dump(new File(getFilesDir(),
+                                            METRICS_FILE));
+            Tracer.dump(new File(getFilesDir(),
+                                 TRACE_FILE));
+        }
+        catch (IOException ex) {
+            Logger.getLogger(AndroidTetris.class.getName()).log(Level.SEVERE,
+                                                                null,
+                                                                ex);
+        }
+    }
+
+    /**
+     * Shows the cached high score table straight away, refreshing it in the
+     * background if it is stale.
+     */
     public void highScoreButtonPressed(View view) {
         setContentView(R.layout.high_scores);
-        TextView t = (TextView) findViewById(R.id.high);
-        HighScore table = new HighScore();
-        t.setText(table.toString());
-        t.invalidate();
+        highScoreText = (TextView) findViewById(R.id.high);
+        HighScore table = leaderboard.get();
+        if (table != null) {
+            showHighScores(table);
+        }
+    }
+
+    /**
+     * Shows a new table if the high score screen is up, and takes back the
+     * offer of a place on the table if the score awaiting a name turns out
+     * not to qualify after all.
+     */
+    @Override
+    public void leaderboardChanged(HighScore table) {
+        if (highScoreText != null) {
+            showHighScores(table);
+        }
+        if (entryPending && !table.qualifies(score)) {
+            setContentView(R.layout.game_over);
+        }
+    }
+
+    private void showHighScores(HighScore table) {
+        highScoreText.setText(table.toString());
+        highScoreText.invalidate();
     }
 
     public void controlsButtonPressed(View view) {
@@ -58,21 +252,40 @@ public class AndroidTetris extends Activity {
     }
     private int score;
 
+    /**
+     * Journals the new entry for delivery in the background.
+     */
     public void newEntryButtonPressed(View view) {
         EditText t = (EditText) this.findViewById(R.id.field);
         CharSequence name = t.getText();
-        HighScore.postScore(new HighScoreEntry(name.toString(),
-                                               score));
+        try {
+            scoreJournal.submit(new HighScoreEntry(name.toString(),
+                                                   score));
+        }
+        catch (IOException ex) {
+            Logger.getLogger(AndroidTetris.class.getName()).log(Level.SEVERE,
+                                                                null,
+                                                                ex);
+        }
         setContentView(R.layout.menu);
     }
 
+    /**
+     * Shows the end of game screen. A high score was decided from the cached
+     * table, so the server's table is fetched again to check it.
+     * @param highScore int representing the final score if it qualified,
+     * otherwise 0
+     */
     public void gameOver(int highScore) {
+        dumpMetrics();
         score = highScore;
         if (highScore == 0) {
             setContentView(R.layout.game_over);
         }
         else {
             setContentView(R.layout.new_high_score);
+            entryPending = true;
+            leaderboard.refresh();
         }
     }
 }
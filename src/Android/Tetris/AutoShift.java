@@ -0,0 +1,138 @@
+package Android.Tetris;
+
+/**
+ * Applies queued input to a TetrisEngine and repeats a held sideways shift.
+ * A hold shifts the Tetra in motion once straight away; if it is still held
+ * after the delayed auto-shift (DAS) time, the shift then repeats at the
+ * auto-repeat rate (ARR) until the hold is released. Holding again, as a
+ * drag does for each column it crosses, shifts once more and restarts the
+ * DAS countdown, so drag shifts never add to the repeats. DAS and ARR are
+ * counted in input ticks rather than read from a clock, so the same inputs
+ * on the same ticks always move the Tetra the same way.
+ * @author Zach Cotter
+ */
+public class AutoShift {
+
+    /**
+     * Inputs handled here rather than by TetrisEngine.apply(int). They are
+     * numbered clear of the engine's INPUT_ constants so both can share one
+     * InputQueue.
+     */
+    public static final int INPUT_HOLD_LEFT = 16;
+    public static final int INPUT_HOLD_RIGHT = 17;
+    public static final int INPUT_RELEASE = 18;
+    private final int tickMillis;
+    private int delayTicks;
+    private int repeatTicks;
+    private int direction;
+    private int heldTicks;
+
+    /**
+     * Constructs an auto-shift with nothing held.
+     * @param tickMillis int representing time between input ticks
+     * @param delayMillis int representing time a hold waits before repeating
+     * @param repeatMillis int representing time between repeats, or 0 to
+     * shift all the way to the wall at once
+     */
+    public AutoShift(int tickMillis,
+                     int delayMillis,
+                     int repeatMillis) {
+        this.tickMillis = tickMillis;
+        setRates(delayMillis,
+                 repeatMillis);
+    }
+
+    /**
+     * Mutates the DAS and ARR times, rounded to whole input ticks.
+     * @param delayMillis int representing time a hold waits before repeating
+     * @param repeatMillis int representing time between repeats, or 0 to
+     * shift all the way to the wall at once
+     */
+    public void setRates(int delayMillis,
+                         int repeatMillis) {
+        delayTicks = Math.max(1,
+                              Math.round((float) delayMillis / tickMillis));
+        repeatTicks = Math.round((float) repeatMillis / tickMillis);
+    }
+
+    /**
+     * Accessor for the time between input ticks.
+     * @return int representing milliseconds per input tick
+     */
+    public int getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Determines if a shift is being held, and so needs input ticks.
+     * @return whether or not a shift is held
+     */
+    public boolean isHeld() {
+        return direction != 0;
+    }
+
+    /**
+     * Applies one queued input, handling holds and releases here and passing
+     * everything else to the engine.
+     * @param engine TetrisEngine to move
+     * @param input int representing an input from here or TetrisEngine
+     * @return whether or not the Tetra moved
+     */
+    public boolean apply(TetrisEngine engine,
+                         int input) {
+        switch (input) {
+            case INPUT_HOLD_LEFT:
+                return hold(engine,
+                            -1);
+            case INPUT_HOLD_RIGHT:
+                return hold(engine,
+                            1);
+            case INPUT_RELEASE:
+                release();
+                return false;
+            default:
+                return engine.apply(input);
+        }
+    }
+
+    private boolean hold(TetrisEngine engine,
+                         int direction) {
+        this.direction = direction;
+        heldTicks = 0;
+        return engine.attemptToMoveCurrent(direction);
+    }
+
+    /**
+     * Lets go of any held shift.
+     */
+    public void release() {
+        direction = 0;
+        heldTicks = 0;
+    }
+
+    /**
+     * Advances a held shift by one input tick, repeating it if it is due.
+     * @param engine TetrisEngine to move
+     * @return whether or not the Tetra moved
+     */
+    public boolean tick(TetrisEngine engine) {
+        if (direction == 0) {
+            return false;
+        }
+        heldTicks++;
+        if (heldTicks < delayTicks) {
+            return false;
+        }
+        if (repeatTicks == 0) {
+            boolean moved = false;
+            while (engine.attemptToMoveCurrent(direction)) {
+                moved = true;
+            }
+            return moved;
+        }
+        if ((heldTicks - delayTicks) % repeatTicks != 0) {
+            return false;
+        }
+        return engine.attemptToMoveCurrent(direction);
+    }
+}
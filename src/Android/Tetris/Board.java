@@ -0,0 +1,409 @@
+package Android.Tetris;
+
+/**
+ * Represents the settled pile of the tetris grid. Occupancy is kept as one
+ * bitmask per row (bit x set means column x is filled) so collision, full row
+ * and empty board checks are mask operations. Colors are kept in a separate
+ * flat plane that is only read when painting. A skyline holding the topmost
+ * filled row of each column is kept alongside the masks, so the distance a
+ * Tetra can drop is found without stepping it down row by row. Fill counts
+ * per row, the number of filled cells and the total height of the columns
+ * are kept up to date on every placement and clear, so the empty board
+ * check and the height, hole and fill statistics are all constant time.
+ * @author Zach Cotter
+ */
+public class Board {
+
+    public static final int WIDTH = 10;
+    public static final int HEIGHT = 20;
+    public static final int FULL_ROW = (1 << WIDTH) - 1;
+    private final int[] rows;
+    private final int[] colors;
+    private final int[] surface;
+    private final int[] rowFill;
+    private int topRow;
+    private int occupied;
+    private int columnHeights;
+
+    /**
+     * Constructs an empty board.
+     */
+    public Board() {
+        rows = new int[HEIGHT];
+        colors = new int[WIDTH * HEIGHT];
+        surface = new int[WIDTH];
+        rowFill = new int[HEIGHT];
+        clear();
+    }
+
+    /**
+     * Determines if the given grid space is on the board.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @return whether or not the space is inbounds
+     */
+    public static boolean inbounds(int x,
+                                   int y) {
+        return ((x >= 0)
+                && (x < WIDTH)
+                && (y >= 0)
+                && (y < HEIGHT));
+    }
+
+    /**
+     * Determines if the given grid space is filled. Spaces that are out of
+     * bounds are never filled.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @return whether or not a block occupies the space
+     */
+    public boolean isOccupied(int x,
+                              int y) {
+        if (!inbounds(x,
+                      y)) {
+            return false;
+        }
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    /**
+     * Determines if a block placed in the given grid space would collide with
+     * the pile or the edges of the board.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @return whether or not the space is blocked
+     */
+    public boolean collides(int x,
+                            int y) {
+        if (!inbounds(x,
+                      y)) {
+            return true;
+        }
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    /**
+     * Determines if the given Tetra, offset by the given amount, would collide
+     * with the pile or the edges of the board. Only the target cells of the
+     * Tetra's blocks are looked up.
+     * @param piece Tetra to test
+     * @param dx int representing lateral offset of target location
+     * @param dy int representing vertical offset of target location
+     * @return whether or not any block of the Tetra would be blocked
+     */
+    public boolean collides(Tetra piece,
+                            int dx,
+                            int dy) {
+        for (int i = 0; i < piece.size(); i++) {
+            if (collides(piece.getX(i) + dx,
+                         piece.getY(i) + dy)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the given Tetra, turned to the given orientation and with
+     * its center offset by the given amount, would collide with the pile or
+     * the edges of the board. Uses the Tetra's precomputed rotation states.
+     * @param piece Tetra to test
+     * @param orientation int representing target orientation
+     * @param dx int representing lateral offset of the center
+     * @param dy int representing vertical offset of the center
+     * @return whether or not any block of the Tetra would be blocked
+     */
+    public boolean collides(Tetra piece,
+                            int orientation,
+                            int dx,
+                            int dy) {
+        int[] offsets = piece.getRotation(orientation);
+        int cx = piece.getCenterX() + dx;
+        int cy = piece.getCenterY() + dy;
+        for (int i = 0; i < offsets.length; i += 2) {
+            if (collides(cx + offsets[i],
+                         cy + offsets[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills the given grid space with a block of the given color.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @param color Color of the block
+     */
+    public void set(int x,
+                    int y,
+                    int color) {
+        int bit = 1 << x;
+        if ((rows[y] & bit) == 0) {
+            rows[y] |= bit;
+            rowFill[y]++;
+            occupied++;
+        }
+        colors[y * WIDTH + x] = color;
+        if (y < surface[x]) {
+            columnHeights += surface[x] - y;
+            surface[x] = y;
+        }
+        if (y < topRow) {
+            topRow = y;
+        }
+    }
+
+    /**
+     * Accesses the color of the block in the given grid space. Only meaningful
+     * if the space is occupied.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @return Color of the block
+     */
+    public int getColor(int x,
+                        int y) {
+        return colors[y * WIDTH + x];
+    }
+
+    /**
+     * Accesses the occupancy mask of the given row.
+     * @param y int representing row
+     * @return int with bit x set for every filled column x
+     */
+    public int getRow(int y) {
+        return rows[y];
+    }
+
+    /**
+     * Accesses the topmost filled row of the given column.
+     * @param x int representing column
+     * @return int representing row, or HEIGHT if the column is empty
+     */
+    public int getSurface(int x) {
+        return surface[x];
+    }
+
+    /**
+     * Accesses the topmost filled row of the whole board.
+     * @return int representing row, or HEIGHT if the board is empty
+     */
+    public int getTopRow() {
+        return topRow;
+    }
+
+    /**
+     * Accesses the number of filled cells in the given row.
+     * @param y int representing row
+     * @return int representing filled cells
+     */
+    public int getRowFill(int y) {
+        return rowFill[y];
+    }
+
+    /**
+     * Accesses the number of filled cells on the board.
+     * @return int representing filled cells
+     */
+    public int getOccupiedCount() {
+        return occupied;
+    }
+
+    /**
+     * Accesses the height of the given column, counted from the bottom of
+     * the board to the top of its topmost block.
+     * @param x int representing column
+     * @return int representing height in rows
+     */
+    public int getColumnHeight(int x) {
+        return HEIGHT - surface[x];
+    }
+
+    /**
+     * Accesses the height of the tallest column.
+     * @return int representing height in rows
+     */
+    public int getMaxHeight() {
+        return HEIGHT - topRow;
+    }
+
+    /**
+     * Accesses the sum of the heights of every column.
+     * @return int representing total height in rows
+     */
+    public int getAggregateHeight() {
+        return columnHeights;
+    }
+
+    /**
+     * Accesses the number of empty cells that have a block somewhere above
+     * them in the same column.
+     * @return int representing holes
+     */
+    public int getHoleCount() {
+        return columnHeights - occupied;
+    }
+
+    /**
+     * Determines how many rows the given Tetra can fall before it lands. The
+     * answer comes from the skyline unless some block of the Tetra is tucked
+     * under an overhang, in which case the Tetra is stepped down instead.
+     * @param piece Tetra to drop, in a position that does not collide
+     * @return int representing rows the Tetra can fall
+     */
+    public int dropDistance(Tetra piece) {
+        if (piece.size() == 0) {
+            return 0;
+        }
+        int distance = HEIGHT;
+        for (int i = 0; i < piece.size(); i++) {
+            int x = piece.getX(i);
+            int y = piece.getY(i);
+            if (y >= surface[x]) {
+                return stepDropDistance(piece);
+            }
+            if (surface[x] - 1 - y < distance) {
+                distance = surface[x] - 1 - y;
+            }
+        }
+        return distance;
+    }
+
+    private int stepDropDistance(Tetra piece) {
+        int distance = 0;
+        while (!collides(piece,
+                         0,
+                         distance + 1)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    /**
+     * Determines if every column of the given row is filled.
+     * @param y int representing row
+     * @return whether or not the row is full
+     */
+    public boolean isRowFull(int y) {
+        return rows[y] == FULL_ROW;
+    }
+
+    /**
+     * Determines if no block has settled on the board.
+     * @return whether or not the board is empty
+     */
+    public boolean isEmpty() {
+        return occupied == 0;
+    }
+
+    /**
+     * Removes every full row in a single pass from the bottom up. Each row
+     * that survives is moved down at most once, by the number of full rows
+     * below it.
+     * @param cleared int[] of at least HEIGHT entries that receives the
+     * indices of the removed rows, bottom row first
+     * @return int representing the number of rows removed
+     */
+    public int clearFullRows(int[] cleared) {
+        int count = 0;
+        int write = HEIGHT - 1;
+        for (int read = HEIGHT - 1; read >= 0; read--) {
+            if (rows[read] == FULL_ROW) {
+                cleared[count++] = read;
+            }
+            else {
+                if (write != read) {
+                    rows[write] = rows[read];
+                    rowFill[write] = rowFill[read];
+                    System.arraycopy(colors,
+                                     read * WIDTH,
+                                     colors,
+                                     write * WIDTH,
+                                     WIDTH);
+                }
+                write--;
+            }
+        }
+        for (int y = 0; y < count; y++) {
+            rows[y] = 0;
+            rowFill[y] = 0;
+        }
+        occupied -= count * WIDTH;
+        if (count > 0) {
+            updateSurface();
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds the skyline after rows have moved. Walks down from the top one
+     * row mask at a time and stops as soon as every column has been found.
+     */
+    private void updateSurface() {
+        int pending = FULL_ROW;
+        topRow = HEIGHT;
+        columnHeights = 0;
+        for (int y = 0; y < HEIGHT && pending != 0; y++) {
+            int found = rows[y] & pending;
+            if (found != 0 && topRow == HEIGHT) {
+                topRow = y;
+            }
+            pending &= ~found;
+            while (found != 0) {
+                surface[Integer.numberOfTrailingZeros(found)] = y;
+                columnHeights += HEIGHT - y;
+                found &= found - 1;
+            }
+        }
+        while (pending != 0) {
+            surface[Integer.numberOfTrailingZeros(pending)] = HEIGHT;
+            pending &= pending - 1;
+        }
+    }
+
+    /**
+     * Makes this board an exact copy of the given one.
+     * @param other Board to copy
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.rows,
+                         0,
+                         rows,
+                         0,
+                         HEIGHT);
+        System.arraycopy(other.colors,
+                         0,
+                         colors,
+                         0,
+                         WIDTH * HEIGHT);
+        System.arraycopy(other.surface,
+                         0,
+                         surface,
+                         0,
+                         WIDTH);
+        System.arraycopy(other.rowFill,
+                         0,
+                         rowFill,
+                         0,
+                         HEIGHT);
+        topRow = other.topRow;
+        occupied = other.occupied;
+        columnHeights = other.columnHeights;
+    }
+
+    /**
+     * Removes every block from the board.
+     */
+    public void clear() {
+        for (int y = 0; y < HEIGHT; y++) {
+            rows[y] = 0;
+            rowFill[y] = 0;
+        }
+        for (int x = 0; x < WIDTH; x++) {
+            surface[x] = HEIGHT;
+        }
+        topRow = HEIGHT;
+        occupied = 0;
+        columnHeights = 0;
+    }
+}
@@ -0,0 +1,107 @@
+package Android.Tetris;
+
+import android.os.Handler;
+import android.widget.TextView;
+
+/**
+ * Shows p50, p99 and max of each of a game's latency histograms, and how
+ * many gravity ticks were missed or dropped and inputs refused, in the
+ * TextView from res/layout/debug.xml, refreshed twice a second on the UI
+ * thread.
+ * @author Zach Cotter
+ */
+public class DebugOverlay implements Runnable {
+
+    private static final long REFRESH_MILLIS = 500;
+    private static final long NANOS_PER_MICRO = 1000;
+    private final TextView text;
+    private final GameMetrics metrics;
+    private final Handler handler;
+    private final StringBuilder builder;
+    private boolean running;
+
+    /**
+     * Constructs a stopped overlay.
+     * @param text TextView to show the figures in
+     * @param metrics GameMetrics to show
+     */
+    public DebugOverlay(TextView text,
+                        GameMetrics metrics) {
+        this.text = text;
+        this.metrics = metrics;
+        handler = new Handler();
+        builder = new StringBuilder();
+    }
+
+    /**
+     * Starts refreshing the figures.
+     */
+    public void start() {
+        if (!running) {
+            running = true;
+            handler.post(this);
+        }
+    }
+
+    /**
+     * Stops refreshing the figures.
+     */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+        if (!running) {
+            return;
+        }
+        builder.setLength(0);
+        for (LatencyHistogram histogram : metrics.getAll()) {
+            builder.append(histogram.getName());
+            builder.append("  p50 ");
+            appendMillis(histogram.getPercentile(50));
+            builder.append("  p99 ");
+            appendMillis(histogram.getPercentile(99));
+            builder.append("  max ");
+            appendMillis(histogram.getMax());
+            builder.append("  n=");
+            builder.append(histogram.getCount());
+            builder.append('\n');
+        }
+        GravityScheduler gravity = metrics.getGravity();
+        if (gravity != null) {
+            builder.append("gravity ticks ");
+            builder.append(gravity.getTicks());
+            builder.append("  missed ");
+            builder.append(gravity.getMissedTicks());
+            builder.append("  dropped ");
+            builder.append(gravity.getDroppedTicks());
+            builder.append('\n');
+        }
+        InputQueue inputs = metrics.getInputs();
+        if (inputs != null) {
+            builder.append("inputs dropped ");
+            builder.append(inputs.getDropped());
+            builder.append('\n');
+        }
+        text.setText(builder);
+        handler.postDelayed(this,
+                            REFRESH_MILLIS);
+    }
+
+    /**
+     * Appends a duration as milliseconds with two decimal places.
+     */
+    private void appendMillis(long nanos) {
+        long hundredths = nanos / (NANOS_PER_MICRO * 10);
+        builder.append(hundredths / 100);
+        builder.append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+        builder.append("ms");
+    }
+}
@@ -0,0 +1,56 @@
+package Android.Tetris;
+
+/**
+ * A small, seeded xorshift64* pseudo random number generator. One instance
+ * per game is enough; drawing a number only mixes a long and allocates
+ * nothing, and the same seed always yields the same sequence.
+ * @author Zach Cotter
+ */
+public class FastRandom {
+
+    private static final long MULTIPLIER = 0x2545F4914F6CDD1DL;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private long state;
+
+    /**
+     * Constructs a generator with the given seed.
+     * @param seed long used to seed the generator
+     */
+    public FastRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Restarts the sequence from the given seed. Nearby seeds are spread out
+     * first so they do not produce similar sequences.
+     * @param seed long used to seed the generator
+     */
+    public void setSeed(long seed) {
+        long z = seed + GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        state = (z == 0) ? GOLDEN_GAMMA : z;
+    }
+
+    /**
+     * Draws the next 32 random bits.
+     * @return int with every bit random
+     */
+    public int nextInt() {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        return (int) ((state * MULTIPLIER) >>> 32);
+    }
+
+    /**
+     * Draws a number in the range [0, bound) by scaling 32 random bits,
+     * which avoids a division.
+     * @param bound int representing exclusive upper limit; must be positive
+     * @return int representing the number drawn
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextInt() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,171 @@
+package Android.Tetris;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The latency histograms kept for one game. Each is recorded on one thread:
+ * frame time and input-to-render on whichever thread paints, tick jitter and
+ * lock-to-clear on the simulation thread. Histograms kept for longer than a
+ * game, such as leaderboard request latency, can be shown alongside them, as
+ * can the gravity scheduler's missed and dropped tick counts and the number
+ * of inputs refused by a full InputQueue.
+ * @author Zach Cotter
+ */
+public class GameMetrics {
+
+    private final LatencyHistogram frameTime;
+    private final LatencyHistogram tickJitter;
+    private final LatencyHistogram lockToClear;
+    private final LatencyHistogram inputToRender;
+    private final LatencyHistogram[] all;
+    private volatile GravityScheduler gravity;
+    private volatile InputQueue inputs;
+
+    /**
+     * Constructs a set of empty histograms.
+     * @param shared LatencyHistogram kept outside this game, listed and
+     * dumped after the game's own
+     */
+    public GameMetrics(LatencyHistogram... shared) {
+        frameTime = new LatencyHistogram("frame");
+        tickJitter = new LatencyHistogram("tick jitter");
+        lockToClear = new LatencyHistogram("lock to clear");
+        inputToRender = new LatencyHistogram("input to render");
+        LatencyHistogram[] own = {frameTime,
+                                  tickJitter,
+                                  lockToClear,
+                                  inputToRender};
+        all = new LatencyHistogram[own.length + shared.length];
+        System.arraycopy(own,
+                         0,
+                         all,
+                         0,
+                         own.length);
+        System.arraycopy(shared,
+                         0,
+                         all,
+                         own.length,
+                         shared.length);
+    }
+
+    /**
+     * Accessor for the time taken to paint each frame.
+     * @return LatencyHistogram of frame times
+     */
+    public LatencyHistogram getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Accessor for how late each gravity tick fired.
+     * @return LatencyHistogram of tick lateness
+     */
+    public LatencyHistogram getTickJitter() {
+        return tickJitter;
+    }
+
+    /**
+     * Accessor for the time taken to add a Tetra to the pile and clear full
+     * rows.
+     * @return LatencyHistogram of lock times
+     */
+    public LatencyHistogram getLockToClear() {
+        return lockToClear;
+    }
+
+    /**
+     * Accessor for the time from recognizing an input to finishing the first
+     * frame that shows its effect.
+     * @return LatencyHistogram of input latency
+     */
+    public LatencyHistogram getInputToRender() {
+        return inputToRender;
+    }
+
+    /**
+     * Accessor for the scheduler whose tick counters are reported with the
+     * histograms.
+     * @return GravityScheduler of this game, or null if none is set
+     */
+    public GravityScheduler getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Mutates the scheduler whose tick counters are reported with the
+     * histograms.
+     * @param gravity GravityScheduler of this game
+     */
+    public void setGravity(GravityScheduler gravity) {
+        this.gravity = gravity;
+    }
+
+    /**
+     * Accessor for the queue whose refused inputs are reported with the
+     * histograms.
+     * @return InputQueue of this game, or null if none is set
+     */
+    public InputQueue getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Mutates the queue whose refused inputs are reported with the
+     * histograms.
+     * @param inputs InputQueue of this game
+     */
+    public void setInputs(InputQueue inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Accessor for every histogram, in a fixed order.
+     * @return LatencyHistogram[] of this game
+     */
+    public LatencyHistogram[] getAll() {
+        return all;
+    }
+
+    /**
+     * Writes every histogram, separated by blank lines, followed by the
+     * gravity tick counters and refused inputs if they are set.
+     * @param out PrintWriter to write to
+     */
+    public void dump(PrintWriter out) {
+        for (LatencyHistogram histogram : all) {
+            histogram.dump(out);
+            out.println();
+        }
+        GravityScheduler gravity = this.gravity;
+        if (gravity != null) {
+            out.println("gravity ticks " + gravity.getTicks()
+                        + " missed " + gravity.getMissedTicks()
+                        + " dropped " + gravity.getDroppedTicks());
+        }
+        InputQueue inputs = this.inputs;
+        if (inputs != null) {
+            out.println("inputs dropped " + inputs.getDropped());
+        }
+    }
+
+    /**
+     * Writes every histogram to the given file, replacing its contents.
+     * @param file File to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            dump(out);
+        }
+        finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+}
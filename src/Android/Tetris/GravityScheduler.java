@@ -0,0 +1,166 @@
+package Android.Tetris;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Fires gravity ticks at a fixed interval on the thread of a Looper,
+ * measured with the monotonic uptime clock. Elapsed time is accumulated and
+ * spent one interval per tick, so a late wakeup delivers the ticks that came
+ * due while it was late instead of drifting. A wakeup that finds more than
+ * MAX_TICKS_PER_WAKE ticks due delivers that many and drops the rest. While
+ * stopped no wakeups are scheduled at all.
+ * @author Zach Cotter
+ */
+public class GravityScheduler implements Runnable {
+
+    private static final int MAX_TICKS_PER_WAKE = 4;
+    private static final long NANOS_PER_MILLI = 1000000;
+    private final Handler handler;
+    private final Target target;
+    private long intervalMillis;
+    private long lastWake;
+    private long wakeAt;
+    private long wakeAtNanos;
+    private long accumulated;
+    private boolean running;
+    /**
+     * Counters written only on the Looper's thread and read from any, for
+     * the debug overlay and the metrics dump.
+     */
+    private volatile long ticks;
+    private volatile long missedTicks;
+    private volatile long droppedTicks;
+    private LatencyHistogram jitter;
+
+    /**
+     * Receives gravity ticks.
+     */
+    public interface Target {
+
+        /**
+         * Called once per tick on the scheduler's thread.
+         */
+        void gravityTick();
+    }
+
+    /**
+     * Constructs a stopped scheduler. It must only be started, stopped and
+     * changed on the Looper's thread.
+     * @param target Target to tick
+     * @param intervalMillis long representing time between ticks
+     * @param looper Looper of the thread to tick on
+     */
+    public GravityScheduler(Target target,
+                            long intervalMillis,
+                            Looper looper) {
+        this.handler = new Handler(looper);
+        this.target = target;
+        this.intervalMillis = intervalMillis;
+        running = false;
+    }
+
+    /**
+     * Starts ticking, with the first tick one interval from now. Does nothing
+     * if already started.
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastWake = SystemClock.uptimeMillis();
+        accumulated = 0;
+        wakeAt = lastWake + intervalMillis;
+        wakeAtNanos = System.nanoTime() + intervalMillis * NANOS_PER_MILLI;
+        handler.postAtTime(this,
+                           wakeAt);
+    }
+
+    /**
+     * Stops ticking and removes the pending wakeup.
+     */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(this);
+    }
+
+    /**
+     * Mutates the time between ticks. Takes effect from the next wakeup.
+     * @param intervalMillis long representing time between ticks
+     */
+    public void setInterval(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Mutates the histogram that records how late each wakeup is, measured
+     * with System.nanoTime() since the uptime clock only resolves whole
+     * milliseconds.
+     * @param jitter LatencyHistogram to record in, or null to not measure
+     */
+    public void setJitterHistogram(LatencyHistogram jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Accessor for the number of ticks delivered.
+     * @return long representing ticks delivered
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Accessor for the number of ticks that did not fire on schedule, whether
+     * they were then delivered late or dropped.
+     * @return long representing missed ticks
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Accessor for the number of ticks that came due but were never
+     * delivered because a wakeup was too late to catch up.
+     * @return long representing dropped ticks
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    @Override
+    public void run() {
+        if (!running) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        long now = SystemClock.uptimeMillis();
+        if (jitter != null) {
+            jitter.record(nowNanos - wakeAtNanos);
+        }
+        accumulated += now - lastWake;
+        lastWake = now;
+        long due = accumulated / intervalMillis;
+        accumulated -= due * intervalMillis;
+        if (due > 1) {
+            missedTicks += due - 1;
+        }
+        if (due > MAX_TICKS_PER_WAKE) {
+            droppedTicks += due - MAX_TICKS_PER_WAKE;
+            due = MAX_TICKS_PER_WAKE;
+        }
+        for (long i = 0; i < due && running; i++) {
+            ticks++;
+            target.gravityTick();
+        }
+        if (running) {
+            long delay = intervalMillis - accumulated;
+            wakeAt = now + delay;
+            wakeAtNanos = nowNanos + delay * NANOS_PER_MILLI;
+            handler.postAtTime(this,
+                               wakeAt);
+        }
+    }
+}
@@ -5,20 +5,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * Interacts with a mySQL database using JSON and PHP in order to maintain
@@ -27,99 +24,207 @@ import org.json.JSONObject;
  */
 public class HighScore {
 
+    public static final String SCORES_URL =
+            "http://www.zachcotter.com/Tetris/scorecheck.php";
+    public static final String POST_URL =
+            "http://www.zachcotter.com/Tetris/postscore.php";
     private ArrayList<HighScoreEntry> list;    
 
     /**
-     * Connects to the database and initializes the list.
+     * Initializes the list with the given entries, best first.
+     * @param entries List of HighScoreEntry to hold
      */
-    public HighScore() {
-        list = new ArrayList<HighScoreEntry>();
-        try {
-            //connects to and runs the mySQL query in the PHP script.
-            HttpClient client = new DefaultHttpClient();
-            HttpPost post = new HttpPost(
-                    "http://www.zachcotter.com/Tetris/scorecheck.php");
-            HttpResponse response = client.execute(post);
-            HttpEntity entity = response.getEntity();
-            InputStream is = entity.getContent();
+    public HighScore(List<HighScoreEntry> entries) {
+        list = new ArrayList<HighScoreEntry>(entries);
+    }
 
-            //converts the response into a string
-            BufferedReader reader =
-                           new BufferedReader(new InputStreamReader(is));
-            String result = "";
-            String line = "";
-            while ((line = reader.readLine()) != null) {
-                result += line + "\n";
-            }
-            reader.close();
-            is.close();
+    /**
+     * Runs the high score query at the given address and reads its result.
+     * Blocks until the request completes, so must not be called on the UI
+     * thread.
+     * @param url String address of the scorecheck script
+     * @return HighScore holding the entries returned
+     * @throws IOException if the request fails or its result is malformed
+     */
+    public static HighScore fetch(String url) throws IOException {
+        return fetch(url,
+                     Integer.MAX_VALUE);
+    }
 
-            //converts the JSON representation of data to HighScoreEntry objects.
-            JSONArray data = new JSONArray(result);
-            for (int i = 0; i < data.length(); i++) {
-                JSONObject jsonEntry = data.getJSONObject(i);
-                list.add(new HighScoreEntry(jsonEntry.getString("name"),
-                                            jsonEntry.getInt("score")));
-            }
+    /**
+     * Runs the high score query at the given address and reads at most the
+     * given number of entries from the top of its result, abandoning the
+     * rest of the response. Blocks until the request completes, so must not
+     * be called on the UI thread.
+     * @param url String address of the scorecheck script
+     * @param maxEntries int representing the most entries to read
+     * @return HighScore holding the entries returned
+     * @throws IOException if the request fails or its result is malformed
+     */
+    public static HighScore fetch(String url,
+                                  int maxEntries) throws IOException {
+        //connects to and runs the mySQL query in the PHP script.
+        HttpPost post = new HttpPost(url);
+        HttpResponse response = LeaderboardClient.getShared().execute(post);
+        int status = response.getStatusLine().getStatusCode();
+        if (status < 200 || status >= 300) {
+            post.abort();
+            throw new IOException("Score check returned HTTP " + status);
         }
-        catch (JSONException ex) {
-            Logger.getLogger(HighScore.class.getName()).log(Level.SEVERE,
-                                                            null,
-                                                            ex);
+        HttpEntity entity = response.getEntity();
+        InputStream is = entity.getContent();
+
+        //decodes the JSON entries as they arrive.
+        HighScoreReader reader =
+                        new HighScoreReader(new InputStreamReader(is,
+                                                                  "UTF-8"));
+        List<HighScoreEntry> entries;
+        try {
+            entries = reader.read(maxEntries);
         }
-        catch (ClientProtocolException ex) {
-            Logger.getLogger(HighScore.class.getName()).log(Level.SEVERE,
-                                                            null,
-                                                            ex);
+        finally {
+            if (!reader.isFinished()) {
+                post.abort();
+            }
+            is.close();
         }
-        catch (IOException ex) {
-            Logger.getLogger(HighScore.class.getName()).log(Level.SEVERE,
-                                                            null,
-                                                            ex);
+        return new HighScore(entries);
+    }
+
+    /**
+     * Posts one new entry to the database as a name and score field, the
+     * form every version of the postscore script understands, along with
+     * an id field that older versions ignore. Blocks until the request
+     * completes, so must not be called on the UI thread.
+     * @param url String address of the postscore script
+     * @param id String id the entry was submitted under
+     * @param e HighScoreEntry to add
+     * @return whether or not the script echoed the id back, which shows it
+     * also understands batches
+     * @throws IOException if the request fails or is not accepted
+     */
+    public static boolean postScore(String url,
+                                    String id,
+                                    HighScoreEntry e) throws IOException {
+        //converts the HighScoreEntry to a type that can be used by the client
+        ArrayList<NameValuePair> pairs = new ArrayList<NameValuePair>();
+        pairs.add(new BasicNameValuePair("name",
+                                         e.getName()));
+        pairs.add(new BasicNameValuePair("score",
+                                         "" + e.getScore()));
+        pairs.add(new BasicNameValuePair("id",
+                                         id));
+        Set<String> acknowledged = post(url,
+                                        pairs);
+        return acknowledged.contains(id);
+    }
+
+    /**
+     * Posts a batch of new entries to the database in one request. Each
+     * entry is sent as an id[], name[] and score[] field, in the same order,
+     * so the script can skip any id it has already stored. The script
+     * answers with the id of every entry it has stored, one per line, and
+     * only those entries count as delivered; a script that does not know
+     * about batches echoes nothing. Blocks until the request completes, so
+     * must not be called on the UI thread.
+     * @param url String address of the postscore script
+     * @param batch Map of the HighScoreEntry to add under each id, in the
+     * order to send them
+     * @return Set of the ids in the batch that the script acknowledged
+     * @throws IOException if the request fails or is not accepted
+     */
+    public static Set<String> postScores(String url,
+                                         Map<String, HighScoreEntry> batch)
+            throws IOException {
+        //converts the entries to a type that can be used by the client
+        ArrayList<NameValuePair> pairs = new ArrayList<NameValuePair>();
+        for (Map.Entry<String, HighScoreEntry> next : batch.entrySet()) {
+            HighScoreEntry e = next.getValue();
+            pairs.add(new BasicNameValuePair("id[]",
+                                             next.getKey()));
+            pairs.add(new BasicNameValuePair("name[]",
+                                             e.getName()));
+            pairs.add(new BasicNameValuePair("score[]",
+                                             "" + e.getScore()));
         }
+        Set<String> acknowledged = post(url,
+                                        pairs);
+        acknowledged.retainAll(batch.keySet());
+        return acknowledged;
     }
-    
+
     /**
-     * Posts a new entry to the database.
-     * @param e The high score entry to add.
+     * Passes form fields to the php script, which executes a SQL insert,
+     * and reads back the ids it acknowledged, one per line.
      */
-    public static void postScore(HighScoreEntry e){
-        try {
-            //converts the HighScoreEntry to a type that can be used by the client
-            ArrayList<NameValuePair> pairs = new ArrayList<NameValuePair>();
-            pairs.add(new BasicNameValuePair("name", e.getName()));
-            pairs.add(new BasicNameValuePair("score", "" + e.getScore()));
-            
-            //passes the data retrieved from the HighScoreEntry to the php
-            //script,which executes a SQL insert.
-            HttpClient client = new DefaultHttpClient();
-            HttpPost post = new HttpPost(
-                    "http://www.zachcotter.com/Tetris/postscore.php");
-            post.setEntity(new UrlEncodedFormEntity(pairs));
-            client.execute(post);
+    private static Set<String> post(String url,
+                                    List<NameValuePair> pairs)
+            throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new UrlEncodedFormEntity(pairs,
+                                                "UTF-8"));
+        HttpResponse response = LeaderboardClient.getShared().execute(post);
+        int status = response.getStatusLine().getStatusCode();
+        if (status < 200 || status >= 300) {
+            post.abort();
+            throw new IOException("Score post returned HTTP " + status);
         }
-        catch (ClientProtocolException ex) {
-            Logger.getLogger(HighScore.class.getName()).log(Level.SEVERE,
-                                                            null,
-                                                            ex);
+        Set<String> acknowledged = new HashSet<String>();
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return acknowledged;
         }
-        catch (IOException ex) {
-            Logger.getLogger(HighScore.class.getName()).log(Level.SEVERE,
-                                                            null,
-                                                            ex);
+        InputStream is = entity.getContent();
+        BufferedReader reader =
+                       new BufferedReader(new InputStreamReader(is,
+                                                                "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                acknowledged.add(line.trim());
+            }
         }
+        finally {
+            reader.close();
+        }
+        return acknowledged;
     }
     
+    /**
+     * Accessor for the entries in the table, best first.
+     * @return List of HighScoreEntry that must not be modified
+     */
+    public List<HighScoreEntry> getEntries() {
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the score a new entry must beat to get onto the table, or 0 if
+     * the table is empty.
+     * @return int representing the lowest score on the table
+     */
     public int getValueToQualify(){
+        if (list.isEmpty()) {
+            return 0;
+        }
         return list.get(list.size() - 1).getScore();
     }
+
+    /**
+     * Determines if the given score would get onto the table.
+     * @param score int representing a final score
+     * @return whether or not the score beats the lowest on the table
+     */
+    public boolean qualifies(int score) {
+        return score > getValueToQualify();
+    }
     
     @Override
     public String toString(){
-        String table = "";
+        StringBuilder table = new StringBuilder();
         for(HighScoreEntry e : list){
-            table += e.toString() + "\n";
+            table.append(e.toString()).append('\n');
         }
-        return table;
+        return table.toString();
     }
 }
@@ -6,6 +6,11 @@ package Android.Tetris;
  */
 public class HighScoreEntry {
 
+    /**
+     * Characters that would break a file holding one entry per line with
+     * tab separated fields.
+     */
+    private static final char[] SEPARATORS = {'\t', '\n', '\r'};
     private String name;
     private int score;
 
@@ -23,6 +28,20 @@ public class HighScoreEntry {
         return score;
     }
 
+    /**
+     * Accessor for the name with tabs and line breaks replaced by spaces,
+     * for storing the entry on one line of a file.
+     * @return String name safe to write as a tab separated field
+     */
+    String getFlatName() {
+        String flat = name;
+        for (char separator : SEPARATORS) {
+            flat = flat.replace(separator,
+                                ' ');
+        }
+        return flat;
+    }
+
     @Override
     public String toString() {
         return name + ": " + score;
@@ -0,0 +1,342 @@
+package Android.Tetris;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the high score table sent by the scorecheck script, a JSON array of
+ * objects each holding a name and a score, straight from the response stream.
+ * Entries are built as their objects are read, so nothing but the entries
+ * themselves and one small buffer is ever held, and reading can stop as soon
+ * as enough entries have been found. A score may be sent as a number or as a
+ * string holding one, and any other members of an object are skipped.
+ * @author Zach Cotter
+ */
+public class HighScoreReader {
+
+    private static final int BUFFER_SIZE = 1024;
+    private final Reader in;
+    private final char[] buffer;
+    private final StringBuilder token;
+    /**
+     * The closing bracket of each array or object open in a skipped value,
+     * innermost last.
+     */
+    private final StringBuilder nesting;
+    private int position;
+    private int limit;
+    private long consumed;
+    private boolean finished;
+
+    /**
+     * Constructs a reader over the given characters. The caller still owns
+     * the Reader and must close it.
+     * @param in Reader supplying the response
+     */
+    public HighScoreReader(Reader in) {
+        this.in = in;
+        buffer = new char[BUFFER_SIZE];
+        token = new StringBuilder();
+        nesting = new StringBuilder();
+    }
+
+    /**
+     * Reads every entry in the table.
+     * @return List of HighScoreEntry in the order they were sent
+     * @throws IOException if reading fails or the table is malformed
+     */
+    public List<HighScoreEntry> read() throws IOException {
+        return read(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads entries until the given number have been found or the table
+     * ends, leaving the rest of the stream unread.
+     * @param maxEntries int representing the most entries to read
+     * @return List of HighScoreEntry in the order they were sent
+     * @throws IOException if reading fails or the table is malformed
+     */
+    public List<HighScoreEntry> read(int maxEntries) throws IOException {
+        List<HighScoreEntry> entries = new ArrayList<HighScoreEntry>();
+        expect('[');
+        if (peekToken() == ']') {
+            next();
+            finished = true;
+            return entries;
+        }
+        while (entries.size() < maxEntries) {
+            entries.add(readEntry());
+            int c = nextToken();
+            if (c == ']') {
+                finished = true;
+                return entries;
+            }
+            if (c != ',') {
+                throw malformed("',' or ']'");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Determines if the whole table has been read, rather than reading
+     * having stopped at the requested number of entries.
+     * @return whether or not the closing bracket was reached
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private HighScoreEntry readEntry() throws IOException {
+        expect('{');
+        String name = null;
+        int score = 0;
+        boolean scoreFound = false;
+        if (peekToken() == '}') {
+            next();
+        }
+        else {
+            int c;
+            do {
+                expect('"');
+                String key = readString();
+                expect(':');
+                if (key.equals("name")) {
+                    name = readName();
+                }
+                else if (key.equals("score")) {
+                    score = readScore();
+                    scoreFound = true;
+                }
+                else {
+                    skipValue();
+                }
+                c = nextToken();
+            } while (c == ',');
+            if (c != '}') {
+                throw malformed("',' or '}'");
+            }
+        }
+        if (name == null || !scoreFound) {
+            throw malformed("an entry with a name and a score");
+        }
+        return new HighScoreEntry(name,
+                                  score);
+    }
+
+    private String readName() throws IOException {
+        int c = peekToken();
+        if (c == '"') {
+            next();
+            return readString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber();
+        }
+        throw malformed("a name");
+    }
+
+    private int readScore() throws IOException {
+        int c = peekToken();
+        String number;
+        if (c == '"') {
+            next();
+            number = readString().trim();
+        }
+        else if (c == '-' || (c >= '0' && c <= '9')) {
+            number = readNumber();
+        }
+        else {
+            throw malformed("a score");
+        }
+        try {
+            return Integer.parseInt(number);
+        }
+        catch (NumberFormatException ex) {
+            try {
+                return (int) Double.parseDouble(number);
+            }
+            catch (NumberFormatException notDecimal) {
+                throw malformed("a numeric score");
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote has been consumed.
+     */
+    private String readString() throws IOException {
+        token.setLength(0);
+        while (true) {
+            int c = next();
+            if (c == '"') {
+                return token.toString();
+            }
+            if (c == '\\') {
+                c = next();
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = readHexChar();
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    default:
+                        throw malformed("an escape sequence");
+                }
+            }
+            else if (c < 0) {
+                throw malformed("'\"'");
+            }
+            token.append((char) c);
+        }
+    }
+
+    private int readHexChar() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(next(),
+                                        16);
+            if (digit < 0) {
+                throw malformed("a hex digit");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private String readNumber() throws IOException {
+        token.setLength(0);
+        int c = peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+               || (c >= '0' && c <= '9')) {
+            token.append((char) next());
+            c = peek();
+        }
+        return token.toString();
+    }
+
+    /**
+     * Skips one value of any kind, including nested objects and arrays. Each
+     * closing bracket must match the innermost one still open, and one with
+     * nothing open is not a value at all.
+     */
+    private void skipValue() throws IOException {
+        nesting.setLength(0);
+        do {
+            int c = nextToken();
+            switch (c) {
+                case '"':
+                    readString();
+                    break;
+                case '{':
+                    nesting.append('}');
+                    break;
+                case '[':
+                    nesting.append(']');
+                    break;
+                case '}':
+                case ']':
+                    closeNesting(c);
+                    break;
+                case ',':
+                case ':':
+                    if (nesting.length() == 0) {
+                        throw malformed("a value");
+                    }
+                    break;
+                case -1:
+                    throw malformed("a value");
+                default:
+                    // a number or a literal, up to the next separator
+                    c = peek();
+                    while (c >= 0 && ",:]}\" \t\r\n".indexOf(c) < 0) {
+                        next();
+                        c = peek();
+                    }
+            }
+        } while (nesting.length() > 0);
+    }
+
+    private void closeNesting(int c) throws IOException {
+        int innermost = nesting.length() - 1;
+        if (innermost < 0) {
+            throw malformed("a value");
+        }
+        if (nesting.charAt(innermost) != c) {
+            throw malformed("'" + nesting.charAt(innermost) + "'");
+        }
+        nesting.setLength(innermost);
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextToken() != expected) {
+            throw malformed("'" + expected + "'");
+        }
+    }
+
+    private IOException malformed(String expected) {
+        return new IOException("Malformed high score table: expected "
+                               + expected
+                               + " at character "
+                               + (consumed - limit + position));
+    }
+
+    private int nextToken() throws IOException {
+        int c = peekToken();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peekToken() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            position++;
+            c = peek();
+        }
+        return c;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            int read = in.read(buffer,
+                               0,
+                               BUFFER_SIZE);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+            consumed += read;
+        }
+        return buffer[position];
+    }
+}
@@ -0,0 +1,75 @@
+package Android.Tetris;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue of engine inputs with exactly one producer thread and one
+ * consumer thread. Inputs are plain ints from TetrisEngine, stored in a ring
+ * buffer, so neither side locks or allocates. When the queue is full new
+ * inputs are refused and counted rather than waited on.
+ * @author Zach Cotter
+ */
+public class InputQueue {
+
+    private final int[] buffer;
+    private final int mask;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+    private volatile long dropped;
+
+    /**
+     * Constructs an empty queue.
+     * @param capacity int representing maximum queued inputs; must be a
+     * power of two
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        buffer = new int[capacity];
+        mask = capacity - 1;
+        head = new AtomicLong();
+        tail = new AtomicLong();
+    }
+
+    /**
+     * Adds an input to the queue. Must only be called from the producer
+     * thread.
+     * @param input int representing a TetrisEngine input
+     * @return whether or not there was room for the input
+     */
+    public boolean offer(int input) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) {
+            dropped++;
+            return false;
+        }
+        buffer[(int) t & mask] = input;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest input from the queue. Must only be called from the
+     * consumer thread.
+     * @return int representing the input, or TetrisEngine.INPUT_NONE if the
+     * queue is empty
+     */
+    public int poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return TetrisEngine.INPUT_NONE;
+        }
+        int input = buffer[(int) h & mask];
+        head.lazySet(h + 1);
+        return input;
+    }
+
+    /**
+     * Accessor for the number of inputs refused because the queue was full.
+     * @return long representing refused inputs
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
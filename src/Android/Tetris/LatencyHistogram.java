@@ -0,0 +1,156 @@
+package Android.Tetris;
+
+import java.io.PrintWriter;
+
+/**
+ * Counts durations in nanoseconds in a fixed set of log-linear buckets: each
+ * power of two is split into SUB_BUCKETS equal buckets, so every recorded
+ * value is kept to within about six percent. Recording is a few shifts and
+ * an increment and never allocates. Values must be recorded from a single
+ * thread; other threads may read percentiles while it records, and see
+ * counts that are at most a few values stale.
+ * @author Zach Cotter
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Largest power of two given its own buckets, about 69 seconds. Longer
+     * durations are counted in the last bucket.
+     */
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2)
+                                       * SUB_BUCKETS;
+    private final String name;
+    private final int[] counts;
+    private volatile int total;
+    private volatile long max;
+
+    /**
+     * Constructs an empty histogram.
+     * @param name String naming what is measured
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+        counts = new int[BUCKETS];
+    }
+
+    /**
+     * Accessor for the name of what is measured.
+     * @return String name of the histogram
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Counts one duration.
+     * @param nanos long representing the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)]++;
+        if (nanos > max) {
+            max = nanos;
+        }
+        total++;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the middle of the range of values counted in a bucket.
+     */
+    private static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+
+    /**
+     * Accessor for the number of durations counted.
+     * @return int representing durations counted
+     */
+    public int getCount() {
+        return total;
+    }
+
+    /**
+     * Accessor for the longest duration counted.
+     * @return long representing nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Finds the duration that the given percentage of counted durations are
+     * no longer than.
+     * @param percentile double between 0 and 100
+     * @return long representing nanoseconds, or 0 if nothing is counted
+     */
+    public long getPercentile(double percentile) {
+        int count = total;
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1,
+                               (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(valueOf(i),
+                                max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every counted duration. Must be called on the recording
+     * thread.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Writes a summary line followed by one line per non-empty bucket, giving
+     * the bucket's value in nanoseconds and its count.
+     * @param out PrintWriter to write to
+     */
+    public void dump(PrintWriter out) {
+        out.println(name
+                    + " count=" + getCount()
+                    + " p50=" + getPercentile(50)
+                    + " p99=" + getPercentile(99)
+                    + " max=" + getMax());
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                out.println(valueOf(i) + " " + counts[i]);
+            }
+        }
+    }
+}
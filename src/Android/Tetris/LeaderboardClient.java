@@ -0,0 +1,202 @@
+package Android.Tetris;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * The one HTTP client all high score traffic goes through. Connections are
+ * pooled and kept alive between requests, so fetching the table and posting
+ * scores only pay for connection setup when the pool has none idle. Every
+ * request has connect, read and pool timeouts, asks for a gzipped response
+ * and has it decompressed transparently, and the time until its response
+ * headers arrive is recorded in a LatencyHistogram.
+ * @author Zach Cotter
+ */
+public class LeaderboardClient {
+
+    public static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+    public static final int READ_TIMEOUT_MILLIS = 20 * 1000;
+    public static final long POOL_TIMEOUT_MILLIS = 10 * 1000;
+    public static final long KEEP_ALIVE_MILLIS = 30 * 1000;
+    public static final int MAX_CONNECTIONS = 4;
+    private static final String GZIP = "gzip";
+    private final DefaultHttpClient client;
+    private final ThreadSafeClientConnManager connections;
+    private final LatencyHistogram latency;
+
+    /**
+     * Holds the shared client, created the first time it is asked for.
+     */
+    private static class Shared {
+
+        static final LeaderboardClient INSTANCE = new LeaderboardClient();
+    }
+
+    /**
+     * Decompresses a gzipped response body as it is read.
+     */
+    private static class GzipEntity extends HttpEntityWrapper {
+
+        public GzipEntity(HttpEntity wrapped) {
+            super(wrapped);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new GZIPInputStream(wrappedEntity.getContent());
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+    }
+
+    /**
+     * Constructs a client with its own connection pool. Most callers should
+     * use getShared() instead.
+     */
+    public LeaderboardClient() {
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params,
+                                                  CONNECT_TIMEOUT_MILLIS);
+        HttpConnectionParams.setSoTimeout(params,
+                                          READ_TIMEOUT_MILLIS);
+        HttpProtocolParams.setVersion(params,
+                                      HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params,
+                                             "UTF-8");
+        ConnManagerParams.setTimeout(params,
+                                     POOL_TIMEOUT_MILLIS);
+        ConnManagerParams.setMaxTotalConnections(params,
+                                                 MAX_CONNECTIONS);
+        //all traffic goes to one host, so the default of 2 per route would
+        //cap the pool at half its size.
+        ConnPerRouteBean perRoute = new ConnPerRouteBean(MAX_CONNECTIONS);
+        ConnManagerParams.setMaxConnectionsPerRoute(params,
+                                                    perRoute);
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http",
+                                    PlainSocketFactory.getSocketFactory(),
+                                    80));
+        schemes.register(new Scheme("https",
+                                    SSLSocketFactory.getSocketFactory(),
+                                    443));
+        connections = new ThreadSafeClientConnManager(params,
+                                                      schemes);
+        client = new DefaultHttpClient(connections,
+                                       params);
+        client.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response,
+                                             HttpContext context) {
+                return KEEP_ALIVE_MILLIS;
+            }
+        });
+        client.addRequestInterceptor(new HttpRequestInterceptor() {
+            @Override
+            public void process(HttpRequest request,
+                                HttpContext context)
+                    throws HttpException, IOException {
+                if (!request.containsHeader("Accept-Encoding")) {
+                    request.addHeader("Accept-Encoding",
+                                      GZIP);
+                }
+            }
+        });
+        client.addResponseInterceptor(new HttpResponseInterceptor() {
+            @Override
+            public void process(HttpResponse response,
+                                HttpContext context)
+                    throws HttpException, IOException {
+                HttpEntity entity = response.getEntity();
+                if (entity == null) {
+                    return;
+                }
+                Header encoding = entity.getContentEncoding();
+                if (encoding != null
+                        && encoding.getValue()
+                                .toLowerCase(Locale.US)
+                                .contains(GZIP)) {
+                    response.setEntity(new GzipEntity(entity));
+                }
+            }
+        });
+        latency = new LatencyHistogram("leaderboard request");
+    }
+
+    /**
+     * Accessor for the client shared by all high score traffic.
+     * @return LeaderboardClient shared by the app
+     */
+    public static LeaderboardClient getShared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Accessor for the time from sending each request to receiving its
+     * response headers.
+     * @return LatencyHistogram of request latency
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Sends a request on a pooled connection and waits for its response
+     * headers. The caller must read the body to its end, close its stream,
+     * consume it or abort the request, so the connection goes back to the
+     * pool.
+     * @param request HttpUriRequest to send
+     * @return HttpResponse whose body has not been read yet
+     * @throws IOException if the request fails or times out
+     */
+    public HttpResponse execute(HttpUriRequest request) throws IOException {
+        connections.closeExpiredConnections();
+        long start = System.nanoTime();
+        HttpResponse response = client.execute(request);
+        long elapsed = System.nanoTime() - start;
+        synchronized (latency) {
+            latency.record(elapsed);
+        }
+        return response;
+    }
+
+    /**
+     * Closes every pooled connection. The client must not be used after.
+     */
+    public void shutdown() {
+        connections.shutdown();
+    }
+}
@@ -0,0 +1,259 @@
+package Android.Tetris;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the high score table without ever blocking the caller. The last
+ * table fetched is returned at once, and a fresh one is fetched on a worker
+ * Executor whenever it is older than the time to live. Each table that lands
+ * is handed to every Listener on a callback Executor, normally the UI
+ * thread, and saved to a cache file so it can be shown straight away the
+ * next time the app starts. The scorecheck address is a constructor
+ * argument, so the repository can be pointed at a local stand-in server.
+ * @author Zach Cotter
+ */
+public class LeaderboardRepository {
+
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+    private static final Logger LOG =
+            Logger.getLogger(LeaderboardRepository.class.getName());
+    private final String url;
+    private final long ttlMillis;
+    private final File cacheFile;
+    private final Executor worker;
+    private final Executor callbacks;
+    private final List<Listener> listeners;
+    private final AtomicBoolean refreshing;
+    private volatile HighScore table;
+    private volatile long fetchedAt;
+
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                HighScore fresh = HighScore.fetch(url);
+                update(fresh,
+                       System.currentTimeMillis());
+                writeCache(fresh);
+            }
+            catch (IOException ex) {
+                LOG.log(Level.WARNING,
+                        null,
+                        ex);
+            }
+            finally {
+                refreshing.set(false);
+            }
+        }
+    };
+
+    /**
+     * Receives each high score table as it lands.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the callback Executor with a newly loaded table.
+         * @param table HighScore that was loaded
+         */
+        void leaderboardChanged(HighScore table);
+    }
+
+    /**
+     * Constructs a repository and starts loading its cache file on the
+     * worker.
+     * @param url String address of the scorecheck script
+     * @param ttlMillis long representing how long a table stays fresh
+     * @param cacheFile File to keep the last table in, or null for none
+     * @param worker Executor to fetch on
+     * @param callbacks Executor to notify Listeners on
+     */
+    public LeaderboardRepository(String url,
+                                 long ttlMillis,
+                                 File cacheFile,
+                                 Executor worker,
+                                 Executor callbacks) {
+        this.url = url;
+        this.ttlMillis = ttlMillis;
+        this.cacheFile = cacheFile;
+        this.worker = worker;
+        this.callbacks = callbacks;
+        listeners = new CopyOnWriteArrayList<Listener>();
+        refreshing = new AtomicBoolean();
+        if (cacheFile != null) {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    readCache();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a Listener to notify of each table that lands.
+     * @param listener Listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a Listener added with addListener.
+     * @param listener Listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Accesses the last table loaded, starting a refresh if it is stale.
+     * @return HighScore last loaded, or null if none has been yet
+     */
+    public HighScore get() {
+        refreshIfStale();
+        return table;
+    }
+
+    /**
+     * Decides from the last table loaded, without any I/O, if the given score
+     * would get onto the table. While no table has been loaded yet every
+     * score above 0 is taken to qualify, to be checked once one arrives.
+     * @param score int representing a final score
+     * @return whether or not the score should be offered a place
+     */
+    public boolean qualifies(int score) {
+        HighScore loaded = table;
+        if (loaded == null) {
+            return score > 0;
+        }
+        return loaded.qualifies(score);
+    }
+
+    /**
+     * Determines if the last table loaded is older than the time to live, or
+     * if there is none.
+     * @return whether or not a refresh is due
+     */
+    public boolean isStale() {
+        return table == null
+               || System.currentTimeMillis() - fetchedAt >= ttlMillis;
+    }
+
+    /**
+     * Starts a refresh if the last table loaded is stale.
+     */
+    public void refreshIfStale() {
+        if (isStale()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Starts fetching a fresh table on the worker, unless a fetch is
+     * already running.
+     */
+    public void refresh() {
+        if (refreshing.compareAndSet(false,
+                                     true)) {
+            worker.execute(refreshTask);
+        }
+    }
+
+    private void update(final HighScore loaded,
+                        long loadedAt) {
+        table = loaded;
+        fetchedAt = loadedAt;
+        callbacks.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : listeners) {
+                    listener.leaderboardChanged(loaded);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the cache file, if the network has not already answered. The
+     * first line holds the time the table was fetched, and each line after
+     * it one score and name separated by a tab.
+     */
+    private void readCache() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            BufferedReader reader =
+                           new BufferedReader(new FileReader(cacheFile));
+            try {
+                long loadedAt = Long.parseLong(reader.readLine());
+                List<HighScoreEntry> entries = new ArrayList<HighScoreEntry>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    int score = Integer.parseInt(line.substring(0,
+                                                                tab));
+                    entries.add(new HighScoreEntry(line.substring(tab + 1),
+                                                   score));
+                }
+                if (table == null) {
+                    update(new HighScore(entries),
+                           loadedAt);
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (IOException ex) {
+            LOG.log(Level.WARNING,
+                    null,
+                    ex);
+        }
+        catch (RuntimeException ex) {
+            LOG.log(Level.WARNING,
+                    "Discarding corrupt cache",
+                    ex);
+            cacheFile.delete();
+        }
+    }
+
+    /**
+     * Saves a table to the cache file, writing a new file and renaming it
+     * over the old one so a crash never leaves half a table behind.
+     */
+    private void writeCache(HighScore saved) throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(temp));
+        try {
+            writer.write(Long.toString(fetchedAt));
+            writer.newLine();
+            for (HighScoreEntry entry : saved.getEntries()) {
+                writer.write(entry.getScore() + "\t" + entry.getFlatName());
+                writer.newLine();
+            }
+        }
+        finally {
+            writer.close();
+        }
+        if (!temp.renameTo(cacheFile)) {
+            throw new IOException("Could not replace " + cacheFile);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package Android.Tetris;
+
+/**
+ * Decides which Tetra comes next. Pieces are drawn from a Policy using the
+ * game's one FastRandom, and the next few are held in a preview queue so
+ * they can be shown before they spawn. Two generators built with the same
+ * seed, policy and preview size hand out the same pieces.
+ * @author Zach Cotter
+ */
+public class PieceGenerator {
+
+    public static final int DEFAULT_PREVIEW_SIZE = 3;
+    private final FastRandom random;
+    private final Policy policy;
+    private final int[] preview;
+    private final long seed;
+    private int head;
+
+    /**
+     * Chooses pieces, identified by their TetraTemplate index.
+     */
+    public interface Policy {
+
+        /**
+         * Chooses the next piece.
+         * @param random FastRandom to draw from
+         * @return int representing a TetraTemplate index
+         */
+        int next(FastRandom random);
+
+        /**
+         * Forgets everything chosen so far.
+         */
+        void reset();
+    }
+
+    /**
+     * Every piece is equally likely every time, so long droughts are
+     * possible.
+     */
+    public static class Uniform implements Policy {
+
+        @Override
+        public int next(FastRandom random) {
+            return random.nextInt(Tetra.NUMBER_OF_TETRAS);
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    /**
+     * Deals every piece once, in shuffled order, before any piece repeats.
+     * No piece is ever more than twelve pieces away.
+     */
+    public static class Bag implements Policy {
+
+        private final int[] bag;
+        private int next;
+
+        public Bag() {
+            bag = new int[Tetra.NUMBER_OF_TETRAS];
+            reset();
+        }
+
+        @Override
+        public int next(FastRandom random) {
+            if (next == bag.length) {
+                for (int i = bag.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = bag[i];
+                    bag[i] = bag[j];
+                    bag[j] = swap;
+                }
+                next = 0;
+            }
+            return bag[next++];
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < bag.length; i++) {
+                bag[i] = i;
+            }
+            next = bag.length;
+        }
+    }
+
+    /**
+     * Rerolls a piece that matches any of the last few pieces dealt, up to a
+     * fixed number of tries, so repeats are rare but still possible.
+     */
+    public static class History implements Policy {
+
+        private final int[] history;
+        private final int tries;
+        private int oldest;
+
+        /**
+         * Constructs a policy remembering the given number of pieces.
+         * @param length int representing pieces remembered
+         * @param tries int representing draws made before a repeat is kept
+         */
+        public History(int length,
+                       int tries) {
+            history = new int[length];
+            this.tries = tries;
+            reset();
+        }
+
+        @Override
+        public int next(FastRandom random) {
+            int piece = random.nextInt(Tetra.NUMBER_OF_TETRAS);
+            for (int i = 1; i < tries && remembers(piece); i++) {
+                piece = random.nextInt(Tetra.NUMBER_OF_TETRAS);
+            }
+            if (history.length > 0) {
+                history[oldest] = piece;
+                oldest = (oldest + 1) % history.length;
+            }
+            return piece;
+        }
+
+        private boolean remembers(int piece) {
+            for (int remembered : history) {
+                if (remembered == piece) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < history.length; i++) {
+                history[i] = -1;
+            }
+            oldest = 0;
+        }
+    }
+
+    /**
+     * Constructs a 7-bag generator with the default preview size.
+     * @param seed long used to seed the generator
+     */
+    public PieceGenerator(long seed) {
+        this(seed,
+             new Bag(),
+             DEFAULT_PREVIEW_SIZE);
+    }
+
+    /**
+     * Constructs a generator and fills its preview queue.
+     * @param seed long used to seed the generator
+     * @param policy Policy choosing each piece
+     * @param previewSize int representing pieces held in the preview queue
+     */
+    public PieceGenerator(long seed,
+                          Policy policy,
+                          int previewSize) {
+        this.seed = seed;
+        this.random = new FastRandom(seed);
+        this.policy = policy;
+        preview = new int[previewSize];
+        reset();
+    }
+
+    /**
+     * Restarts the sequence from the seed, so the same pieces are handed
+     * out again.
+     */
+    public void reset() {
+        random.setSeed(seed);
+        policy.reset();
+        for (int i = 0; i < preview.length; i++) {
+            preview[i] = policy.next(random);
+        }
+        head = 0;
+    }
+
+    /**
+     * Takes the piece at the front of the preview queue and draws a new one
+     * onto the back.
+     * @return int representing a TetraTemplate index
+     */
+    public int next() {
+        if (preview.length == 0) {
+            return policy.next(random);
+        }
+        int piece = preview[head];
+        preview[head] = policy.next(random);
+        head = (head + 1) % preview.length;
+        return piece;
+    }
+
+    /**
+     * Accesses an upcoming piece without taking it.
+     * @param i int representing position in the queue, 0 being next
+     * @return int representing a TetraTemplate index
+     */
+    public int peek(int i) {
+        return preview[(head + i) % preview.length];
+    }
+
+    /**
+     * Accessor for the number of pieces held in the preview queue.
+     * @return int representing preview size
+     */
+    public int getPreviewSize() {
+        return preview.length;
+    }
+
+    /**
+     * Accessor for the seed the sequence started from.
+     * @return long used to seed the generator
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,315 @@
+package Android.Tetris;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers new high scores to the server without ever losing one. Submitting
+ * a score only appends it to a journal file. A worker then sends pending
+ * scores to the postscore script and records each one in the journal once
+ * the server has accepted it. A failed post is retried after a delay that
+ * doubles each time, up to a cap. Every score carries an id chosen when it
+ * is submitted, so a post sent again after a lost reply can be recognized
+ * by the server and stored only once. Scores still pending when the app
+ * stops are read back from the journal the next time it starts.
+ * <p>
+ * Scores are sent one at a time, in the form every version of the script
+ * understands, until the script echoes an id back to show it understands
+ * batches. From then on they are sent in batches, and only the scores whose
+ * ids the script echoes count as delivered. If a batch comes back with
+ * none, the journal goes back to sending one score at a time.
+ * @author Zach Cotter
+ */
+public class ScoreJournal {
+
+    public static final int BATCH_SIZE = 20;
+    public static final long INITIAL_BACKOFF_MILLIS = 2 * 1000;
+    public static final long MAX_BACKOFF_MILLIS = 10 * 60 * 1000;
+    private static final String ADDED = "+";
+    private static final String DELIVERED = "-";
+    private static final Logger LOG =
+            Logger.getLogger(ScoreJournal.class.getName());
+    private final String url;
+    private final File journalFile;
+    private final ScheduledExecutorService worker;
+    private final Map<String, HighScoreEntry> pending;
+    private final AtomicBoolean drainScheduled;
+    private long backoffMillis;
+    /**
+     * Whether or not the script has shown it acknowledges batches. Only
+     * touched on the worker.
+     */
+    private boolean batched;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            drain();
+        }
+    };
+
+    /**
+     * Constructs a journal and starts reading back, on the worker, any
+     * scores left pending the last time the app ran.
+     * @param url String address of the postscore script
+     * @param journalFile File to keep pending scores in
+     * @param worker ScheduledExecutorService with a single thread, so that
+     * no batch is ever sent twice at once
+     */
+    public ScoreJournal(String url,
+                        File journalFile,
+                        ScheduledExecutorService worker) {
+        this.url = url;
+        this.journalFile = journalFile;
+        this.worker = worker;
+        pending = new LinkedHashMap<String, HighScoreEntry>();
+        drainScheduled = new AtomicBoolean();
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                replay();
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Appends a score to the journal and asks the worker to deliver it.
+     * Returns once the score is on disk.
+     * @param entry HighScoreEntry to deliver
+     * @return String id the score was submitted under
+     * @throws IOException if the journal cannot be written
+     */
+    public String submit(HighScoreEntry entry) throws IOException {
+        String id = UUID.randomUUID().toString();
+        synchronized (this) {
+            append(ADDED + "\t" + id + "\t" + entry.getScore() + "\t"
+                   + entry.getFlatName());
+            pending.put(id,
+                        entry);
+        }
+        scheduleDrain(0);
+        return id;
+    }
+
+    /**
+     * Accesses the number of scores not yet accepted by the server.
+     * @return int representing pending scores
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void scheduleDrain(long delayMillis) {
+        if (drainScheduled.compareAndSet(false,
+                                         true)) {
+            worker.schedule(drainTask,
+                            delayMillis,
+                            TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends pending scores until none are left or a post fails, in which
+     * case another attempt is scheduled after the current backoff. Called
+     * on the worker.
+     */
+    private void drain() {
+        Map<String, HighScoreEntry> batch;
+        while (!(batch = nextBatch(batched ? BATCH_SIZE : 1)).isEmpty()) {
+            Set<String> accepted;
+            try {
+                accepted = batched ? HighScore.postScores(url,
+                                                          batch)
+                                   : postSingle(batch);
+            }
+            catch (IOException ex) {
+                LOG.log(Level.WARNING,
+                        "Score delivery failed, retrying in "
+                        + backoffMillis + "ms",
+                        ex);
+                scheduleDrain(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2,
+                                         MAX_BACKOFF_MILLIS);
+                return;
+            }
+            if (accepted.isEmpty()) {
+                LOG.warning("Score batch was not acknowledged, "
+                            + "sending scores one at a time");
+                batched = false;
+                continue;
+            }
+            backoffMillis = INITIAL_BACKOFF_MILLIS;
+            delivered(accepted);
+        }
+    }
+
+    /**
+     * Sends one score. A script that echoes its id has stored it and
+     * understands batches; one that answers without the id predates them,
+     * so a successful answer is all it can give.
+     */
+    private Set<String> postSingle(Map<String, HighScoreEntry> batch)
+            throws IOException {
+        Map.Entry<String, HighScoreEntry> only =
+                batch.entrySet().iterator().next();
+        if (HighScore.postScore(url,
+                                only.getKey(),
+                                only.getValue())) {
+            batched = true;
+        }
+        return Collections.singleton(only.getKey());
+    }
+
+    private synchronized Map<String, HighScoreEntry> nextBatch(int size) {
+        Map<String, HighScoreEntry> batch =
+                new LinkedHashMap<String, HighScoreEntry>();
+        Iterator<Map.Entry<String, HighScoreEntry>> it =
+                pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < size) {
+            Map.Entry<String, HighScoreEntry> next = it.next();
+            batch.put(next.getKey(),
+                      next.getValue());
+        }
+        return batch;
+    }
+
+    /**
+     * Records that the server accepted the given scores. Once nothing is
+     * pending the journal is emptied so it does not grow without bound.
+     */
+    private synchronized void delivered(Set<String> ids) {
+        for (String id : ids) {
+            pending.remove(id);
+        }
+        try {
+            if (pending.isEmpty()) {
+                rewrite();
+                return;
+            }
+            StringBuilder records = new StringBuilder();
+            for (String id : ids) {
+                if (records.length() > 0) {
+                    records.append('\n');
+                }
+                records.append(DELIVERED).append('\t')
+                        .append(id);
+            }
+            append(records.toString());
+        }
+        catch (IOException ex) {
+            // the batch is sent again after a restart, which the ids make
+            // harmless
+            LOG.log(Level.WARNING,
+                    null,
+                    ex);
+        }
+    }
+
+    /**
+     * Reads the journal back into the pending scores and rewrites it with
+     * only those. A line cut short by a crash while it was being appended
+     * is ignored.
+     */
+    private synchronized void replay() {
+        if (!journalFile.exists()) {
+            return;
+        }
+        try {
+            BufferedReader reader =
+                           new BufferedReader(new FileReader(journalFile));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t",
+                                                 4);
+                    try {
+                        if (fields[0].equals(ADDED) && fields.length == 4) {
+                            int score = Integer.parseInt(fields[2]);
+                            pending.put(fields[1],
+                                        new HighScoreEntry(fields[3],
+                                                           score));
+                        }
+                        else if (fields[0].equals(DELIVERED)
+                                 && fields.length == 2) {
+                            pending.remove(fields[1]);
+                        }
+                    }
+                    catch (NumberFormatException ex) {
+                        LOG.log(Level.WARNING,
+                                "Skipping damaged journal line",
+                                ex);
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+            rewrite();
+        }
+        catch (IOException ex) {
+            LOG.log(Level.WARNING,
+                    null,
+                    ex);
+        }
+    }
+
+    private void append(String records) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(journalFile,
+                                                                  true));
+        try {
+            writer.write(records);
+            writer.newLine();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Replaces the journal with one holding only the pending scores,
+     * writing a new file and renaming it over the old one so a crash never
+     * loses a score.
+     */
+    private void rewrite() throws IOException {
+        if (pending.isEmpty()) {
+            if (journalFile.exists() && !journalFile.delete()) {
+                throw new IOException("Could not delete " + journalFile);
+            }
+            return;
+        }
+        File temp = new File(journalFile.getPath() + ".tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(temp));
+        try {
+            for (Map.Entry<String, HighScoreEntry> next : pending.entrySet()) {
+                HighScoreEntry entry = next.getValue();
+                writer.write(ADDED + "\t" + next.getKey() + "\t"
+                             + entry.getScore() + "\t" + entry.getFlatName());
+                writer.newLine();
+            }
+        }
+        finally {
+            writer.close();
+        }
+        if (!temp.renameTo(journalFile)) {
+            throw new IOException("Could not replace " + journalFile);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package Android.Tetris;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands TetrisSnapshots from a simulation thread to a render thread without
+ * locking. The producer fills its back buffer and publishes it; the consumer
+ * acquires the most recently published snapshot as its front buffer. A third
+ * buffer sits between them, so the producer never waits for a frame to be
+ * painted and the consumer never sees a snapshot being written.
+ * @author Zach Cotter
+ */
+public class SnapshotBuffer {
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+    private final TetrisSnapshot[] buffers;
+    private final AtomicInteger middle;
+    private int back;
+    private int front;
+
+    /**
+     * Constructs a buffer of three empty snapshots.
+     */
+    public SnapshotBuffer() {
+        buffers = new TetrisSnapshot[3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new TetrisSnapshot();
+        }
+        front = 0;
+        middle = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Accesses the snapshot the producer may write. Must only be called from
+     * the producer thread.
+     * @return TetrisSnapshot to fill before calling publish()
+     */
+    public TetrisSnapshot getBackBuffer() {
+        return buffers[back];
+    }
+
+    /**
+     * Makes the back buffer the latest snapshot and takes a new back buffer.
+     * Must only be called from the producer thread.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Takes the latest published snapshot as the front buffer, if one has
+     * been published since the last call. Must only be called from the
+     * consumer thread.
+     * @return whether or not the front buffer changed
+     */
+    public boolean acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX;
+        return true;
+    }
+
+    /**
+     * Accesses the snapshot the consumer may read. It stays unchanged until
+     * the next successful acquire(). Must only be called from the consumer
+     * thread.
+     * @return TetrisSnapshot most recently acquired
+     */
+    public TetrisSnapshot getFrontBuffer() {
+        return buffers[front];
+    }
+}
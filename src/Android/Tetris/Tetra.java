@@ -1,14 +1,11 @@
 package Android.Tetris;
 
-import android.graphics.Canvas;
-import android.graphics.Color;
-import java.util.HashSet;
-
 /**
- * Represents a Tetra piece for the tetris game.  A Tetra has a Set<Block> representing
- * it's Blocks. It contains methods to move each block in unison as a single
- * cohesive unit. Each Block in the Set is rotated around a defined center
- * Coordinate.
+ * Represents a Tetra piece for the tetris game.  A Tetra keeps the grid
+ * position of each of its blocks packed into a single int, along with one
+ * color and a center point. It contains methods to move each block in unison
+ * as a single cohesive unit, in place and without allocating. Each block is
+ * rotated around the center.
  * @author Zach Cotter
  */
 public class Tetra {
@@ -21,121 +18,33 @@ public class Tetra {
                                                     't',
                                                     'z',
                                                     's'};
-    private final Block[] O_BLOCKS = {new Block(4,
-                                                0,
-                                                Color.GREEN),
-                                      new Block(5,
-                                                0,
-                                                Color.GREEN),
-                                      new Block(4,
-                                                1,
-                                                Color.GREEN),
-                                      new Block(5,
-                                                1,
-                                                Color.GREEN)};
-    private final Block[] I_BLOCKS = {new Block(3,
-                                                0,
-                                                Color.BLUE),
-                                      new Block(4,
-                                                0,
-                                                Color.BLUE),
-                                      new Block(5,
-                                                0,
-                                                Color.BLUE),
-                                      new Block(6,
-                                                0,
-                                                Color.BLUE)};
-    private final Block[] L_BLOCKS = {new Block(3,
-                                                1,
-                                                Color.MAGENTA),
-                                      new Block(4,
-                                                1,
-                                                Color.MAGENTA),
-                                      new Block(5,
-                                                1,
-                                                Color.MAGENTA),
-                                      new Block(5,
-                                                0,
-                                                Color.MAGENTA)};
-    private final Block[] J_BLOCKS = {new Block(3,
-                                                1,
-                                                Color.CYAN),
-                                      new Block(4,
-                                                1,
-                                                Color.CYAN),
-                                      new Block(5,
-                                                1,
-                                                Color.CYAN),
-                                      new Block(3,
-                                                0,
-                                                Color.CYAN)};
-    private final int ORANGE = Color.rgb(255,
-                                         200,
-                                         0);
-    private final Block[] T_BLOCKS = {new Block(3,
-                                                1,
-                                                ORANGE),
-                                      new Block(4,
-                                                1,
-                                                ORANGE),
-                                      new Block(5,
-                                                1,
-                                                ORANGE),
-                                      new Block(4,
-                                                0,
-                                                ORANGE)};
-    private final int PINK = Color.rgb(255,
-                                       175,
-                                       175);
-    private final Block[] Z_BLOCKS = {new Block(3,
-                                                0,
-                                                PINK),
-                                      new Block(4,
-                                                0,
-                                                PINK),
-                                      new Block(4,
-                                                1,
-                                                PINK),
-                                      new Block(5,
-                                                1,
-                                                PINK)};
-    private final Block[] S_BLOCKS = {new Block(3,
-                                                1,
-                                                Color.RED),
-                                      new Block(4,
-                                                0,
-                                                Color.RED),
-                                      new Block(4,
-                                                1,
-                                                Color.RED),
-                                      new Block(5,
-                                                0,
-                                                Color.RED)};
-    private final Coordinate O_CENTER = new Coordinate(4,
-                                                       0);
-    private final Coordinate I_CENTER = new Coordinate(4,
-                                                       0);
-    private final Coordinate L_CENTER = new Coordinate(5,
-                                                       1);
-    private final Coordinate J_CENTER = new Coordinate(3,
-                                                       1);
-    private final Coordinate T_CENTER = new Coordinate(4,
-                                                       1);
-    private final Coordinate Z_CENTER = new Coordinate(4,
-                                                       1);
-    private final Coordinate S_CENTER = new Coordinate(4,
-                                                       1);
+    /**
+     * Kick table that only tries the rotation in place.
+     */
+    public static final int[][] NO_KICKS = {{0, 0}};
+    /**
+     * Kick table that tries the rotation in place, then nudged one column away
+     * from either wall, then one row up.
+     */
+    public static final int[][] WALL_KICKS = {{0, 0},
+                                              {-1, 0},
+                                              {1, 0},
+                                              {0, -1}};
+
     //essential fields
-    private HashSet<Block> tetra;
-    private Coordinate center;
+    private TetraTemplate template;
+    private int[] cells;
+    private int centerX;
+    private int centerY;
+    private int color;
+    private int[][] rotations;
+    private int orientation;
 
     /**
      * Constructs a Tetra that has no blocks and has a center at (-1,-1)
      */
     public Tetra() {
-        tetra = new HashSet<Block>();
-        center = new Coordinate(-1,
-                                -1);
+        this((TetraTemplate) null);
     }
 
     /**
@@ -144,87 +53,95 @@ public class Tetra {
      * @param identifier char representing predefined target Tetra
      */
     public Tetra(char identifier) {
-        if (identifier == 'o') {
-            constructorHelper(O_BLOCKS,
-                              O_CENTER);
-        }
-        else if (identifier == 'i') {
-            constructorHelper(I_BLOCKS,
-                              I_CENTER);
-        }
-        else if (identifier == 'l') {
-            constructorHelper(L_BLOCKS,
-                              L_CENTER);
-        }
-        else if (identifier == 'j') {
-            constructorHelper(J_BLOCKS,
-                              J_CENTER);
-        }
-        else if (identifier == 't') {
-            constructorHelper(T_BLOCKS,
-                              T_CENTER);
-        }
-        else if (identifier == 'z') {
-            constructorHelper(Z_BLOCKS,
-                              Z_CENTER);
+        this(TetraTemplate.forIdentifier(identifier));
+    }
+
+    /**
+     * Constructs a tetra in the spawn position of the given shape. The
+     * shape's rotation states are shared rather than copied.
+     * @param template TetraTemplate to spawn, or null for a Tetra with no
+     * blocks
+     */
+    public Tetra(TetraTemplate template) {
+        this.template = template;
+        if (template == null) {
+            cells = new int[0];
+            centerX = -1;
+            centerY = -1;
+            color = 0xFF000000;
+            rotations = TetraTemplate.buildRotations(new int[0]);
+            return;
         }
-        else if (identifier == 's') {
-            constructorHelper(S_BLOCKS,
-                              S_CENTER);
+        centerX = template.getSpawnX();
+        centerY = template.getSpawnY();
+        color = template.getColor();
+        rotations = template.getRotations();
+        int[] offsets = rotations[0];
+        cells = new int[offsets.length / 2];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = pack(centerX + offsets[2 * i],
+                            centerY + offsets[2 * i + 1]);
         }
     }
 
     /**
-     * Constructs a new Tetra from the given Blocks and center Coordinate.
-     * @param blocks Blocks to be placed in this Tetra's Set<Block>
-     * @param center Coordinate representing this tetra's center/axis of rotation
+     * Packs a grid position into a single int. The x value is kept in the
+     * upper 16 bits and the y value in the lower 16 bits.
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @return int representing both positions
      */
-    public Tetra(Block[] blocks,
-                 Coordinate center) {
-        constructorHelper(blocks,
-                          center);
+    static int pack(int x,
+                    int y) {
+        return (x << 16) | (y & 0xFFFF);
     }
 
     /**
-     * Copy Constructor
-     * @param tetra HashSet<Block> for new Tetra
-     * @param center Coordinate center of new Tetra
+     * Unpacks the x position from a packed cell.
+     * @param cell int made by pack()
+     * @return int representing x position in grid
      */
-    public Tetra(HashSet<Block> tetra,
-                 Coordinate center) {
-        this.tetra = tetra;
-        this.center = center;
+    static int unpackX(int cell) {
+        return cell >> 16;
     }
 
-    private void constructorHelper(Block[] blocks,
-                                   Coordinate center) {
-        tetra = new HashSet<Block>();
-        for (Block b : blocks) {
-            tetra.add(b);
-        }
-        this.center = center;
+    /**
+     * Unpacks the y position from a packed cell.
+     * @param cell int made by pack()
+     * @return int representing y position in grid
+     */
+    static int unpackY(int cell) {
+        return (short) cell;
     }
 
     /**
-     * Instantiates a new Tetra with the same values as this. Calls copy
-     * constructors of each field with as much depth as necessary to make
-     * the new Tetra completely independent.
-     * @return a new, identical Tetra
+     * Makes this Tetra an exact copy of the given one, reusing this Tetra's
+     * storage when the number of blocks matches.
+     * @param other Tetra to copy
      */
-    public Tetra cloneFoRealz() {
-        HashSet<Block> cloneSet = new HashSet<Block>();
-        for (Block b : tetra) {
-            int x = b.getX();
-            int y = b.getY();
-            int color = b.getColor();
-
-            cloneSet.add(new Block(x,
-                                   y,
-                                   color));
+    public void copyFrom(Tetra other) {
+        if (cells.length != other.cells.length) {
+            cells = new int[other.cells.length];
         }
-        return new Tetra(cloneSet,
-                         new Coordinate(1000,
-                                        1000));
+        System.arraycopy(other.cells,
+                         0,
+                         cells,
+                         0,
+                         cells.length);
+        template = other.template;
+        centerX = other.centerX;
+        centerY = other.centerY;
+        color = other.color;
+        rotations = other.rotations;
+        orientation = other.orientation;
+    }
+
+    /**
+     * Accessor for the shape this was spawned from.
+     * @return TetraTemplate of this, or null if this has no blocks
+     */
+    public TetraTemplate getTemplate() {
+        return template;
     }
 
     /**
@@ -232,59 +149,76 @@ public class Tetra {
      * @param c Color the blocks will change to.
      */
     public void setColor(int c) {
-        for (Block b : tetra) {
-            b.setColor(c);
-        }
+        color = c;
+    }
+
+    /**
+     * Accesses the color of the blocks in this tetra
+     * @return Color of the blocks
+     */
+    public int getColor() {
+        return color;
     }
 
     /**
-     * Accessor for center Coordinate of this.
+     * Accessor for center Coordinate of this. Allocates a new Coordinate, so
+     * getCenterX() and getCenterY() should be preferred during play.
      * @return Coordinate representing center/rotation point.
      */
     public Coordinate getCenter() {
-        return center;
+        return new Coordinate(centerX,
+                              centerY);
     }
 
-
+    /**
+     * Accessor for x value of the center of this.
+     * @return int representing x of the center/rotation point.
+     */
+    public int getCenterX() {
+        return centerX;
+    }
 
     /**
-     * Mutator for the Coordinate representing the center point of this.
-     * @param center Coordinate representing new center point.
+     * Accessor for y value of the center of this.
+     * @return int representing y of the center/rotation point.
      */
-    public void setCenter(Coordinate center) {
-        this.center = center;
+    public int getCenterY() {
+        return centerY;
     }
 
     /**
-     * Adds the provided Block to the Set.
-     * @param newBlock Block to be added
+     * Mutator for the Coordinate representing the center point of this.
+     * @param center Coordinate representing new center point.
      */
-    public void addBlock(Block newBlock) {
-        tetra.add(newBlock);
+    public void setCenter(Coordinate center) {
+        centerX = center.getX();
+        centerY = center.getY();
     }
 
     /**
-     * Removes the provided block from the set, if it is present
-     * @param target Block to be removed.
+     * Accesses the number of blocks in this Tetra.
+     * @return int representing number of blocks
      */
-    public void removeBlock(Block target) {
-        tetra.remove(target);
+    public int size() {
+        return cells.length;
     }
 
     /**
-     * Accesses the Set containing this Tetra's Blocks.
-     * @return Set<Block> containing this Tetra's Blocks, in no particular order.
+     * Accesses the x position of one of this Tetra's blocks.
+     * @param i int representing index of block
+     * @return int representing x position in grid
      */
-    public HashSet<Block> getTetra() {
-        return tetra;
+    public int getX(int i) {
+        return unpackX(cells[i]);
     }
 
     /**
-     * Mutates the Set containing this Tetra's Blocks
-     * @param tetra The new HashSet.
+     * Accesses the y position of one of this Tetra's blocks.
+     * @param i int representing index of block
+     * @return int representing y position in grid
      */
-    public void setTetra(HashSet<Block> tetra) {
-        this.tetra = tetra;
+    public int getY(int i) {
+        return unpackY(cells[i]);
     }
 
     /**
@@ -292,8 +226,9 @@ public class Tetra {
      * @return Whether or not they are all inbounds
      */
     public boolean inbounds() {
-        for (Block b : tetra) {
-            if (!b.inbounds()) {
+        for (int cell : cells) {
+            if (!Board.inbounds(unpackX(cell),
+                                unpackY(cell))) {
                 return false;
             }
         }
@@ -301,52 +236,58 @@ public class Tetra {
     }
 
     /**
-     * Moves all of the blocks in this tetra down if and only if they can all
-     * be moved down.
+     * Moves all of the blocks in this tetra by the given offset if and only
+     * if they all stay inbounds.
+     * @param dx int representing lateral offset
+     * @param dy int representing vertical offset
      * @return Whether or not a movement could be made.
      */
-    public boolean moveDown() {
-        HashSet<Block> newBlocks = new HashSet<Block>();
-        for (Block b : tetra) {
-            boolean success = b.moveDown();
-            if (success) {
-                newBlocks.add(b);
-            }
-            else {
+    private boolean move(int dx,
+                         int dy) {
+        for (int cell : cells) {
+            if (!Board.inbounds(unpackX(cell) + dx,
+                                unpackY(cell) + dy)) {
                 return false;
             }
         }
-        this.setTetra(newBlocks);
-        this.setCenter(new Coordinate(
-                this.getCenter().getX(),
-                this.getCenter().getY() + 1));
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = pack(unpackX(cells[i]) + dx,
+                            unpackY(cells[i]) + dy);
+        }
+        centerX += dx;
+        centerY += dy;
         return true;
     }
 
+    /**
+     * Moves all of the blocks in this tetra down if and only if they can all
+     * be moved down.
+     * @return Whether or not a movement could be made.
+     */
+    public boolean moveDown() {
+        return move(0,
+                    1);
+    }
+
+    /**
+     * Moves all of the blocks in this tetra down by the given number of rows
+     * if and only if they all stay inbounds. Does not check the pile.
+     * @param rows int representing rows to move down
+     * @return Whether or not a movement could be made.
+     */
+    public boolean moveDown(int rows) {
+        return move(0,
+                    rows);
+    }
+
     /**
      * Moves all of the blocks in this tetra left if and only if they can all
      * be moved left.
      * @return Whether or not a movement could be made.
      */
     public boolean moveLeft() {
-        Tetra newTetra = new Tetra();
-        Block[] temp = tetra.toArray(new Block[1]);
-        for (int count = 0; count < temp.length; count++) {
-            Block b = temp[count];
-            boolean success = b.moveLeft();
-            if (success) {
-                newTetra.addBlock(b);
-            }
-            else {
-                return false;
-            }
-        }
-        this.setTetra(null);
-        this.setTetra(newTetra.getTetra());
-        this.setCenter(new Coordinate(
-                this.getCenter().getX() - 1,
-                this.getCenter().getY()));
-        return true;
+        return move(-1,
+                    0);
     }
 
     /**
@@ -355,21 +296,8 @@ public class Tetra {
      * @return Whether or not a movement could be made.
      */
     public boolean moveRight() {
-        Tetra newTetra = new Tetra();
-        for (Block b : this.getTetra()) {
-            boolean success = b.moveRight();
-            if (success) {
-                newTetra.addBlock(b);
-            }
-            else {
-                return false;
-            }
-        }
-        this.setTetra(newTetra.getTetra());
-        this.setCenter(new Coordinate(
-                this.getCenter().getX() + 1,
-                this.getCenter().getY()));
-        return true;
+        return move(1,
+                    0);
     }
 
     /**
@@ -380,116 +308,167 @@ public class Tetra {
      * @return True if the two Tetras are equivalent.
      */
     public boolean equals(Tetra other) {
-        boolean equivalent = true;
-        if (other.getTetra().size() != getTetra().size()) {
+        if (other.cells.length != cells.length) {
             return false;
         }
-        //make more efficient
-        for (Block b : tetra) {
+        for (int cell : cells) {
             boolean found = false;
-            for (Block otherBlock : tetra) {//FIX THIS
-                if (b.equals(otherBlock)) {
+            for (int otherCell : other.cells) {
+                if (cell == otherCell) {
                     found = true;
                     break;
                 }
             }
             if (!found) {
-                equivalent = false;
-                break;
+                return false;
             }
         }
-        return equivalent;
+        return true;
     }
 
     /**
-     * Rotates each Block owned by this Tetra clockwise around the Tetra's
-     * center point, if and only if all rotations would be successful.
+     * Accessor for the orientation of this.
+     * @return int representing how many clockwise turns this is from its
+     * spawn orientation, modulo four.
      */
-    public void rotateClockwise() {
-        boolean possible = true;
-        for (Block b : tetra) {
-            if (b.canRotateCW(center) == false) {
-                possible = false;
-                break;
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Accesses the offsets from the center of each block in the given
+     * orientation. The returned array is shared and must not be modified.
+     * @param orientation int representing target orientation
+     * @return int[] of dx,dy pairs
+     */
+    public int[] getRotation(int orientation) {
+        return rotations[orientation & 3];
+    }
+
+    /**
+     * Determines if every block would be inbounds in the given orientation
+     * with the center offset by the given amount.
+     * @param orientation int representing target orientation
+     * @param dx int representing lateral offset of the center
+     * @param dy int representing vertical offset of the center
+     * @return Whether or not the rotation would be successful
+     */
+    public boolean canRotateTo(int orientation,
+                               int dx,
+                               int dy) {
+        int[] offsets = getRotation(orientation);
+        int cx = centerX + dx;
+        int cy = centerY + dy;
+        for (int i = 0; i < offsets.length; i += 2) {
+            if (!Board.inbounds(cx + offsets[i],
+                                cy + offsets[i + 1])) {
+                return false;
             }
         }
-        if (possible) {
-            for (Block b : tetra) {
-                b.rotateCW(center);
-            }
+        return true;
+    }
+
+    /**
+     * Places each block owned by this Tetra in the given orientation with the
+     * center offset by the given amount. Does not check bounds.
+     * @param orientation int representing target orientation
+     * @param dx int representing lateral offset of the center
+     * @param dy int representing vertical offset of the center
+     */
+    public void rotateTo(int orientation,
+                         int dx,
+                         int dy) {
+        int[] offsets = getRotation(orientation);
+        centerX += dx;
+        centerY += dy;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = pack(centerX + offsets[2 * i],
+                            centerY + offsets[2 * i + 1]);
         }
+        this.orientation = orientation & 3;
     }
 
     /**
-     * Rotates each Block owned by this Tetra counter-clockwise around the Tetra's
+     * Rotates each block owned by this Tetra clockwise around the Tetra's
      * center point, if and only if all rotations would be successful.
      */
-    public void rotateCounterClockwise() {
-        boolean possible = true;
-        for (Block b : tetra) {
-            if (b.canRotateCCW(center) == false) {
-                possible = false;
-                break;
-            }
+    public void rotateClockwise() {
+        int target = (orientation + 1) & 3;
+        if (canRotateTo(target,
+                        0,
+                        0)) {
+            rotateTo(target,
+                     0,
+                     0);
         }
-        if (possible) {
-            for (Block b : tetra) {
-                b.rotateCCW(center);
-            }
+    }
+
+    /**
+     * Rotates each block owned by this Tetra counter-clockwise around the Tetra's
+     * center point, if and only if all rotations would be successful.
+     */
+    public void rotateCounterClockwise() {
+        int target = (orientation + 3) & 3;
+        if (canRotateTo(target,
+                        0,
+                        0)) {
+            rotateTo(target,
+                     0,
+                     0);
         }
     }
 
     /**
-     * Returns the maximum y location held by any Block owned by this Tetra.
+     * Returns the maximum y location held by any block owned by this Tetra.
      * @return int representing max y
      */
     public int findTopBound() {
         int max = 0;
-        for (Block b : tetra) {
-            if (b.getY() > max) {
-                max = b.getY();
+        for (int cell : cells) {
+            if (unpackY(cell) > max) {
+                max = unpackY(cell);
             }
         }
         return max;
     }
 
     /**
-     * Returns minumum x location held by any Block owned by this Tetra.
+     * Returns minumum x location held by any block owned by this Tetra.
      * @return int representing min x
      */
     public int findLeftBound() {
         int min = 100;
-        for (Block b : tetra) {
-            if (b.getX() < min) {
-                min = b.getX();
+        for (int cell : cells) {
+            if (unpackX(cell) < min) {
+                min = unpackX(cell);
             }
         }
         return min;
     }
 
     /**
-     * Returns maximum x location held by any Block owned by this Tetra.
+     * Returns maximum x location held by any block owned by this Tetra.
      * @return int representing max x
      */
     public int findRightBound() {
         int max = 0;
-        for (Block b : tetra) {
-            if (b.getX() > max) {
-                max = b.getX();
+        for (int cell : cells) {
+            if (unpackX(cell) > max) {
+                max = unpackX(cell);
             }
         }
         return max;
     }
 
     /**
-     * Returns the minimum y location held by any Block owned by this Tetra.
+     * Returns the minimum y location held by any block owned by this Tetra.
      * @return int representing min y
      */
     public int findBottomBound() {
         int min = 100;
-        for (Block b : tetra) {
-            if (b.getY() < min) {
-                min = b.getY();
+        for (int cell : cells) {
+            if (unpackY(cell) < min) {
+                min = unpackY(cell);
             }
         }
         return min;
@@ -502,17 +481,12 @@ public class Tetra {
      */
     @Override
     public String toString() {
-        String toString = "Tetra:\nCenter: " + center.toString() + "\n[\n";
-        for (Block b : tetra) {
-            toString += b.toString() + "\n";
+        String toString = "Tetra:\nCenter: (" + centerX + ", " + centerY
+                          + ")\n[\n";
+        for (int cell : cells) {
+            toString += "(" + unpackX(cell) + ", " + unpackY(cell) + ") "
+                        + color + "\n";
         }
         return toString + "]";
     }
-
-
-    public void paint(Canvas canvas) {
-        for(Block b : tetra){
-            b.paint(canvas);
-        }
-    }
-}
\ No newline at end of file
+}
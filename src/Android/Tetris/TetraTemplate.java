@@ -0,0 +1,158 @@
+package Android.Tetris;
+
+/**
+ * Immutable definition of one of the predefined Tetras: its identifier, color,
+ * spawn center and rotation states. A single instance of each shape is shared
+ * by every Tetra spawned from it.
+ * @author Zach Cotter
+ */
+public final class TetraTemplate {
+
+    public static final int GREEN = 0xFF00FF00;
+    public static final int BLUE = 0xFF0000FF;
+    public static final int MAGENTA = 0xFFFF00FF;
+    public static final int CYAN = 0xFF00FFFF;
+    public static final int ORANGE = 0xFFFFC800;
+    public static final int PINK = 0xFFFFAFAF;
+    public static final int RED = 0xFFFF0000;
+    /**
+     * One template per predefined Tetra, in the order of
+     * Tetra.TETRA_IDENTIFIERS. Offsets are dx,dy pairs from the spawn center.
+     */
+    private static final TetraTemplate[] TEMPLATES = {
+        new TetraTemplate('o', GREEN, 4, 0,
+                          new int[]{0, 0, 1, 0, 0, 1, 1, 1}),
+        new TetraTemplate('i', BLUE, 4, 0,
+                          new int[]{-1, 0, 0, 0, 1, 0, 2, 0}),
+        new TetraTemplate('l', MAGENTA, 5, 1,
+                          new int[]{-2, 0, -1, 0, 0, 0, 0, -1}),
+        new TetraTemplate('j', CYAN, 3, 1,
+                          new int[]{0, 0, 1, 0, 2, 0, 0, -1}),
+        new TetraTemplate('t', ORANGE, 4, 1,
+                          new int[]{-1, 0, 0, 0, 1, 0, 0, -1}),
+        new TetraTemplate('z', PINK, 4, 1,
+                          new int[]{-1, -1, 0, -1, 0, 0, 1, 0}),
+        new TetraTemplate('s', RED, 4, 1,
+                          new int[]{-1, 0, 0, -1, 0, 0, 1, -1})};
+    private final char identifier;
+    private final int index;
+    private final int color;
+    private final int spawnX;
+    private final int spawnY;
+    private final int[][] rotations;
+
+    private TetraTemplate(char identifier,
+                          int color,
+                          int spawnX,
+                          int spawnY,
+                          int[] spawnOffsets) {
+        this.identifier = identifier;
+        this.index = indexOf(identifier);
+        this.color = color;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.rotations = buildRotations(spawnOffsets);
+    }
+
+    private static int indexOf(char identifier) {
+        for (int i = 0; i < Tetra.TETRA_IDENTIFIERS.length; i++) {
+            if (Tetra.TETRA_IDENTIFIERS[i] == identifier) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Accesses the template at the given position of Tetra.TETRA_IDENTIFIERS.
+     * @param index int representing position of the identifier
+     * @return the shared template
+     */
+    public static TetraTemplate get(int index) {
+        return TEMPLATES[index];
+    }
+
+    /**
+     * Accesses the template with the given identifier.
+     * @param identifier char representing predefined target Tetra
+     * @return the shared template, or null if there is no such Tetra
+     */
+    public static TetraTemplate forIdentifier(char identifier) {
+        int i = indexOf(identifier);
+        if (i < 0) {
+            return null;
+        }
+        return TEMPLATES[i];
+    }
+
+    /**
+     * Builds the four rotation states of a shape given its offsets from the
+     * center in the spawn orientation. Orientation n is the spawn orientation
+     * turned clockwise n times.
+     * @param spawn int[] of dx,dy pairs
+     * @return int[][] of dx,dy pairs indexed by orientation
+     */
+    static int[][] buildRotations(int[] spawn) {
+        int[][] states = new int[4][];
+        states[0] = spawn;
+        for (int o = 1; o < 4; o++) {
+            int[] previous = states[o - 1];
+            int[] next = new int[previous.length];
+            for (int i = 0; i < previous.length; i += 2) {
+                next[i] = previous[i + 1];
+                next[i + 1] = -previous[i];
+            }
+            states[o] = next;
+        }
+        return states;
+    }
+
+    /**
+     * Accessor for the identifier of this shape.
+     * @return char representing the shape
+     */
+    public char getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Accessor for the position of this shape in Tetra.TETRA_IDENTIFIERS.
+     * @return int representing the position
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Accessor for the color of this shape.
+     * @return Color of the blocks
+     */
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * Accessor for the x value of the center where this shape spawns.
+     * @return int representing x position in grid
+     */
+    public int getSpawnX() {
+        return spawnX;
+    }
+
+    /**
+     * Accessor for the y value of the center where this shape spawns.
+     * @return int representing y position in grid
+     */
+    public int getSpawnY() {
+        return spawnY;
+    }
+
+    /**
+     * Accesses the rotation states of this shape. The returned arrays are
+     * shared and must not be modified.
+     * @return int[][] of dx,dy pairs indexed by orientation
+     */
+    int[][] getRotations() {
+        return rotations;
+    }
+}
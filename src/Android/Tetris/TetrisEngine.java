@@ -0,0 +1,401 @@
+package Android.Tetris;
+
+/**
+ * Runs the rules of a game of tetris: gravity, movement, rotation, line
+ * clears, scoring and game over. The engine has no Android dependencies so it
+ * can be driven headlessly; views feed it input and timer ticks and paint its
+ * state. Two engines built with the same seed and fed the same calls play
+ * identical games.
+ * @author Zach Cotter
+ */
+public class TetrisEngine {
+
+    /**
+     * Inputs accepted by apply(int), so that moves can be queued as plain
+     * ints and replayed.
+     */
+    public static final int INPUT_NONE = 0;
+    public static final int INPUT_LEFT = 1;
+    public static final int INPUT_RIGHT = 2;
+    public static final int INPUT_ROTATE_CLOCKWISE = 3;
+    public static final int INPUT_ROTATE_COUNTER_CLOCKWISE = 4;
+    public static final int INPUT_DROP = 5;
+    private static final int POINTS_PER_BLOCK = 10;
+    private static final int POINTS_PER_TOTAL_CLEAR = 500;
+    private static final int POINTS_PER_CLEAR = 100;
+    private static final int POINTS_PER_LEVEL = 1000;
+    /**
+     * Time in milliseconds between gravity steps, indexed by level. Levels
+     * past the end of the table use its last entry.
+     */
+    private static final int[] GRAVITY_MILLIS_PER_LEVEL = {800, 780, 760, 740,
+                                                           720, 700, 680, 660,
+                                                           640, 620, 600, 580,
+                                                           560, 540, 520, 500,
+                                                           480, 460, 440, 420,
+                                                           400};
+    private final Board board;
+    private final PieceGenerator pieces;
+    private final int[] clearedRows;
+    private int clearedRowCount;
+    private int[][] rotationKicks;
+    private Tetra current;
+    private int score;
+    private int pileVersion;
+    private boolean gameOver;
+    private Listener listener;
+    private LatencyHistogram lockTimes;
+
+    /**
+     * Receives notice of changes that a view needs to react to.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a Tetra has been added to the pile and full rows have
+         * been removed.
+         * @param engine the engine whose pile changed
+         */
+        void pileChanged(TetrisEngine engine);
+
+        /**
+         * Called once when the pile reaches the top of the grid.
+         * @param engine the engine whose game ended
+         */
+        void gameOver(TetrisEngine engine);
+    }
+
+    /**
+     * Constructs an engine whose pieces are seeded from the clock.
+     */
+    public TetrisEngine() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Constructs an engine dealing 7-bag pieces determined by the given seed.
+     * @param seed long used to seed the piece generator
+     */
+    public TetrisEngine(long seed) {
+        this(new PieceGenerator(seed));
+    }
+
+    /**
+     * Constructs an engine dealing pieces from the given generator.
+     * @param pieces PieceGenerator choosing each Tetra
+     */
+    public TetrisEngine(PieceGenerator pieces) {
+        board = new Board();
+        this.pieces = pieces;
+        clearedRows = new int[Board.HEIGHT];
+        rotationKicks = Tetra.NO_KICKS;
+        score = 0;
+        gameOver = false;
+        current = generateTetra();
+    }
+
+    /**
+     * Mutates the object notified of pile changes and game over.
+     * @param listener Listener to notify, or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Mutates the histogram that records how long each Tetra takes to be
+     * added to the pile, including clearing full rows.
+     * @param lockTimes LatencyHistogram to record in, or null to not measure
+     */
+    public void setLockHistogram(LatencyHistogram lockTimes) {
+        this.lockTimes = lockTimes;
+    }
+
+    /**
+     * Mutates the kick table tried in order when rotating.
+     * @param rotationKicks int[][] of dx,dy offsets such as Tetra.NO_KICKS
+     */
+    public void setRotationKicks(int[][] rotationKicks) {
+        this.rotationKicks = rotationKicks;
+    }
+
+    /**
+     * Accessor for the settled pile.
+     * @return Board of this game
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Accessor for the Tetra currently in motion.
+     * @return Tetra currently in motion
+     */
+    public Tetra getCurrent() {
+        return current;
+    }
+
+    /**
+     * Replaces the Tetra currently in motion.
+     * @param current Tetra to put in motion
+     */
+    void setCurrent(Tetra current) {
+        this.current = current;
+    }
+
+    /**
+     * Accessor for the generator choosing each Tetra, whose preview queue
+     * holds the pieces that come next.
+     * @return PieceGenerator of this engine
+     */
+    public PieceGenerator getPieces() {
+        return pieces;
+    }
+
+    /**
+     * Accessor for the score.
+     * @return int representing score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Accessor for the level, which goes up every thousand points.
+     * @return int representing level, starting at zero
+     */
+    public int getLevel() {
+        return score / POINTS_PER_LEVEL;
+    }
+
+    /**
+     * Accesses the time between gravity steps at the current level.
+     * @return int representing milliseconds between calls to tick()
+     */
+    public int getGravityMillis() {
+        int level = getLevel();
+        if (level >= GRAVITY_MILLIS_PER_LEVEL.length) {
+            level = GRAVITY_MILLIS_PER_LEVEL.length - 1;
+        }
+        return GRAVITY_MILLIS_PER_LEVEL[level];
+    }
+
+    /**
+     * Accesses the indices of the rows removed by the most recent line clear,
+     * bottom row first. Only the first getClearedRowCount() entries are
+     * meaningful, and the array is reused by the next clear.
+     * @return int[] of row indices
+     */
+    public int[] getClearedRows() {
+        return clearedRows;
+    }
+
+    /**
+     * Accesses the number of rows removed by the most recent line clear.
+     * @return int representing number of rows
+     */
+    public int getClearedRowCount() {
+        return clearedRowCount;
+    }
+
+    /**
+     * Accesses a counter that goes up every time a Tetra is added to the
+     * pile, so painters can tell when a cached pile is stale.
+     * @return int representing number of changes to the pile
+     */
+    public int getPileVersion() {
+        return pileVersion;
+    }
+
+    /**
+     * Determines if the pile has reached the top of the grid.
+     * @return whether or not the game has ended
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Advances the game by one gravity step: the Tetra currently in motion
+     * falls a row or is added to the pile, then game over is checked.
+     * @return whether or not the Tetra fell
+     */
+    public boolean tick() {
+        if (gameOver) {
+            return false;
+        }
+        Tracer.begin(Tracer.STEP);
+        boolean moved = attemptToMoveCurrent(0);
+        checkGameOver();
+        Tracer.end(Tracer.STEP);
+        return moved;
+    }
+
+    /**
+     * Applies one queued input to the Tetra currently in motion.
+     * @param input int representing one of the INPUT_ constants
+     * @return whether or not the input moved the Tetra
+     */
+    public boolean apply(int input) {
+        switch (input) {
+            case INPUT_LEFT:
+                return attemptToMoveCurrent(-1);
+            case INPUT_RIGHT:
+                return attemptToMoveCurrent(1);
+            case INPUT_ROTATE_CLOCKWISE:
+                return attemptToRotateCurrent(true);
+            case INPUT_ROTATE_COUNTER_CLOCKWISE:
+                return attemptToRotateCurrent(false);
+            case INPUT_DROP:
+                return attemptToMoveCurrentToMaximumDownwardPosition();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Drops the Tetra currently in motion as far as it will go and adds it to
+     * the pile. The distance comes from the board's skyline in one step.
+     * @return whether or not the movement was successful
+     */
+    public boolean attemptToMoveCurrentToMaximumDownwardPosition() {
+        if (gameOver) {
+            return false;
+        }
+        current.moveDown(board.dropDistance(current));
+        return attemptToMoveCurrent(0);
+    }
+
+    /**
+     * Determines how far the Tetra currently in motion would fall if it were
+     * dropped, which is where its ghost is shown.
+     * @return int representing rows the Tetra can fall
+     */
+    public int getDropDistance() {
+        return board.dropDistance(current);
+    }
+
+    /**
+     * Turns the Tetra currently in motion a quarter turn, trying each offset
+     * of the kick table in order until one lands in free space.
+     * @param clockwise whether to turn clockwise or counter-clockwise
+     * @return whether or not rotation was successful
+     */
+    public boolean attemptToRotateCurrent(boolean clockwise) {
+        if (gameOver) {
+            return false;
+        }
+        int target = current.getOrientation() + (clockwise ? 1 : 3);
+        for (int[] kick : rotationKicks) {
+            if (!board.collides(current,
+                                target,
+                                kick[0],
+                                kick[1])) {
+                current.rotateTo(target,
+                                 kick[0],
+                                 kick[1]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Abstracts singular horizontal and vertical movements of the Tetra
+     * currently in motion. Parameter indicates lateral offset of target
+     * location. A movement is made if and only if all Blocks of the Tetra
+     * currently in motion can complete the motion in the same direction.
+     * A downward movement that cannot be made adds the Tetra to the pile.
+     * @param direction int representing lateral offset of target location
+     * (ie -1==left, 0==down, 1==right)
+     * @return whether or not movement was successful
+     */
+    public boolean attemptToMoveCurrent(int direction) {
+        if (gameOver) {
+            return false;
+        }
+        Tracer.begin(Tracer.MOVE);
+        int dy = 0;
+        if (direction == 0) {
+            dy = 1;
+        }
+        boolean possible = !board.collides(current,
+                                           direction,
+                                           dy);
+        if (possible) {
+            if (direction == 0) {
+                current.moveDown();
+            }
+            if (direction == 1) {
+                current.moveRight();
+            }
+            if (direction == -1) {
+                current.moveLeft();
+            }
+        }
+        else if (direction == 0) {
+            addCurrentToPile();
+            current = generateTetra();
+        }
+        Tracer.end(Tracer.MOVE);
+        return possible;
+    }
+
+    Tetra generateTetra() {
+        return new Tetra(TetraTemplate.get(pieces.next()));
+    }
+
+    private boolean checkGameOver() {
+        if (board.getTopRow() == 0) {
+            gameOver = true;
+            if (listener != null) {
+                listener.gameOver(this);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the current Tetra to the pile, then processes the pile.
+     */
+    private void addCurrentToPile() {
+        Tracer.begin(Tracer.LOCK);
+        long start = (lockTimes != null) ? System.nanoTime() : 0;
+        for (int i = 0; i < current.size(); i++) {
+            board.set(current.getX(i),
+                      current.getY(i),
+                      current.getColor());
+            score += POINTS_PER_BLOCK;
+        }
+        dumpFullRows();
+        checkGridEmptyForScore();
+        if (lockTimes != null) {
+            lockTimes.record(System.nanoTime() - start);
+        }
+        pileVersion++;
+        if (listener != null) {
+            listener.pileChanged(this);
+        }
+        Tracer.end(Tracer.LOCK);
+    }
+
+    private void checkGridEmptyForScore() {
+        if (board.isEmpty()) {
+            score += POINTS_PER_TOTAL_CLEAR;
+        }
+    }
+
+    /**
+     * Erases rows of the grid that are full and moves rows above down as
+     * needed, all in one pass over the board.
+     * @return int representing number of rows erased
+     */
+    int dumpFullRows() {
+        Tracer.begin(Tracer.CLEAR);
+        clearedRowCount = board.clearFullRows(clearedRows);
+        score += POINTS_PER_CLEAR * clearedRowCount;
+        Tracer.end(Tracer.CLEAR);
+        return clearedRowCount;
+    }
+}
@@ -0,0 +1,355 @@
+package Android.Tetris;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a TetrisEngine on its own simulation thread and hands the end of the
+ * game to AndroidTetris, deciding whether the final score is a high score
+ * from a table prefetched when the game starts and on every level up. The
+ * engine is only ever touched by that thread: touch input is recognized by
+ * TouchInput and reaches it through an InputQueue, AutoShift applies it and
+ * repeats held shifts on a fixed input tick, gravity is scheduled on it, and
+ * after every update it publishes a TetrisSnapshot through a SnapshotBuffer
+ * for a Screen to paint. Neither side ever holds a lock the other needs.
+ * @author Zach Cotter
+ */
+public class TetrisGame implements GravityScheduler.Target {
+
+    private static final int INPUT_CAPACITY = 64;
+    private static final int INPUT_TICK_MILLIS = 16;
+    private static final int DEFAULT_DAS_MILLIS = 160;
+    private static final int DEFAULT_ARR_MILLIS = 48;
+    private final Context theContext;
+    private final Screen screen;
+    private final TetrisEngine engine;
+    private final SnapshotBuffer snapshots;
+    private final InputQueue inputs;
+    private final HandlerThread simulation;
+    private final Handler simulationHandler;
+    private final Handler mainHandler;
+    private final GravityScheduler gravity;
+    private final AtomicBoolean drainPending;
+    private final AtomicLong inputNanos;
+    private final GameMetrics metrics;
+    private final TouchInput touch;
+    private final AutoShift autoShift;
+    private final LeaderboardRepository leaderboard;
+    private int level;
+    private boolean inputClockRunning;
+    private long nextInputTick;
+    private boolean gameOverPublished;
+    private int finalScore;
+    private volatile boolean gameOver;
+
+    private final Runnable drainInputs = new Runnable() {
+        @Override
+        public void run() {
+            drainInputs();
+        }
+    };
+
+    private final Runnable clockedInputTick = new Runnable() {
+        @Override
+        public void run() {
+            inputTick(true);
+        }
+    };
+
+    private final Runnable startGravity = new Runnable() {
+        @Override
+        public void run() {
+            if (!engine.isGameOver()) {
+                gravity.start();
+            }
+        }
+    };
+
+    private final Runnable stopTicking = new Runnable() {
+        @Override
+        public void run() {
+            gravity.stop();
+            autoShift.release();
+            simulationHandler.removeCallbacks(clockedInputTick);
+            inputClockRunning = false;
+            drainPending.set(false);
+            while (inputs.poll() != TetrisEngine.INPUT_NONE) {
+                // input sent before a pause is dropped
+            }
+        }
+    };
+
+    private final Runnable stopSimulation = new Runnable() {
+        @Override
+        public void run() {
+            stopTicking.run();
+            Looper.myLooper().quit();
+        }
+    };
+
+    private final Runnable reportGameOver = new Runnable() {
+        @Override
+        public void run() {
+            reportGameOver();
+        }
+    };
+
+    /**
+     * Paints the snapshots a game publishes.
+     */
+    public interface Screen {
+
+        /**
+         * Called on the simulation thread after a new snapshot is published.
+         * Implementations must not block; the snapshot itself is taken with
+         * SnapshotBuffer.acquire() on whichever thread paints it.
+         */
+        void snapshotPublished();
+    }
+
+    /**
+     * Constructs a new game, starts its simulation thread and starts its
+     * gravity.
+     * @param context AndroidTetris activity the game is played in
+     * @param panelWidth int representing width of the playing area in pixels
+     * @param screen Screen that paints the game
+     */
+    public TetrisGame(Context context,
+                      int panelWidth,
+                      Screen screen) {
+        theContext = context;
+        this.screen = screen;
+        leaderboard = ((AndroidTetris) context).getLeaderboard();
+        leaderboard.refreshIfStale();
+        gameOver = false;
+        gameOverPublished = false;
+        metrics = new GameMetrics(LeaderboardClient.getShared().getLatency());
+        engine = new TetrisEngine();
+        engine.setLockHistogram(metrics.getLockToClear());
+        level = engine.getLevel();
+        snapshots = new SnapshotBuffer();
+        snapshots.getBackBuffer().copyFrom(engine);
+        snapshots.publish();
+        inputs = new InputQueue(INPUT_CAPACITY);
+        drainPending = new AtomicBoolean();
+        inputNanos = new AtomicLong();
+        autoShift = new AutoShift(INPUT_TICK_MILLIS,
+                                  DEFAULT_DAS_MILLIS,
+                                  DEFAULT_ARR_MILLIS);
+        touch = new TouchInput(this,
+                               panelWidth);
+        mainHandler = new Handler(Looper.getMainLooper());
+        simulation = new HandlerThread("TetrisSimulation");
+        simulation.start();
+        simulationHandler = new Handler(simulation.getLooper());
+        gravity = new GravityScheduler(this,
+                                       engine.getGravityMillis(),
+                                       simulation.getLooper());
+        gravity.setJitterHistogram(metrics.getTickJitter());
+        metrics.setGravity(gravity);
+        metrics.setInputs(inputs);
+        simulationHandler.post(startGravity);
+    }
+
+    /**
+     * Accessor for the snapshots published by the simulation thread. Only
+     * one thread at a time may acquire from it.
+     * @return SnapshotBuffer of this game
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Accessor for the queue carrying input to the simulation thread.
+     * @return InputQueue of this game
+     */
+    public InputQueue getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Accessor for the latency histograms of this game.
+     * @return GameMetrics of this game
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Accessor for the scheduler firing gravity ticks. Its counters may be
+     * read on any thread.
+     * @return GravityScheduler of this game
+     */
+    public GravityScheduler getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Determines if the end of the game has been reported to AndroidTetris.
+     * @return whether or not the game has ended
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Stops gravity and auto-shift until unpause() is called. Input queued
+     * but not yet applied is dropped.
+     */
+    public void pause() {
+        simulationHandler.post(stopTicking);
+    }
+
+    /**
+     * Restarts gravity, one full interval from now.
+     */
+    public void unpause() {
+        if (gameOver) {
+            return;
+        }
+        simulationHandler.post(startGravity);
+    }
+
+    /**
+     * Stops ticking and ends the simulation thread once it has finished
+     * the work already posted to it.
+     */
+    public void quit() {
+        simulationHandler.post(stopSimulation);
+    }
+
+    /**
+     * Passes a touch event to the game's TouchInput.
+     * @param event MotionEvent delivered to the view
+     * @return true, since every event is consumed
+     */
+    public boolean onTouchEvent(MotionEvent event) {
+        Tracer.begin(Tracer.TOUCH);
+        boolean handled = touch.onTouchEvent(event);
+        Tracer.end(Tracer.TOUCH);
+        return handled;
+    }
+
+    /**
+     * Queues an input and wakes the simulation thread unless a wakeup is
+     * already pending. Called on the UI thread.
+     * @param input int representing an input from TetrisEngine or AutoShift
+     */
+    void send(int input) {
+        inputNanos.compareAndSet(0,
+                                 System.nanoTime());
+        if (inputs.offer(input)
+                && drainPending.compareAndSet(false,
+                                              true)) {
+            simulationHandler.post(drainInputs);
+        }
+    }
+
+    /**
+     * Consumes queued input as soon as it arrives, unless the input clock is
+     * running, in which case it waits for the next input tick so that it is
+     * ordered deterministically against auto-shift repeats.
+     */
+    private void drainInputs() {
+        if (inputClockRunning) {
+            return;
+        }
+        inputTick(false);
+    }
+
+    /**
+     * Runs one input tick: applies every queued input in order, then, on
+     * ticks of the input clock, advances any held shift. The clock keeps
+     * running while a shift is held and stops as soon as none is.
+     * @param clocked whether or not the input clock fired this tick
+     */
+    private void inputTick(boolean clocked) {
+        drainPending.set(false);
+        long sentNanos = inputNanos.getAndSet(0);
+        boolean changed = false;
+        int input;
+        while ((input = inputs.poll()) != TetrisEngine.INPUT_NONE) {
+            autoShift.apply(engine,
+                            input);
+            changed = true;
+        }
+        if (clocked && autoShift.tick(engine)) {
+            changed = true;
+        }
+        if (changed) {
+            publish(sentNanos);
+        }
+        if (autoShift.isHeld() && !engine.isGameOver()) {
+            long now = SystemClock.uptimeMillis();
+            nextInputTick = inputClockRunning
+                            ? Math.max(nextInputTick + INPUT_TICK_MILLIS,
+                                       now)
+                            : now + INPUT_TICK_MILLIS;
+            inputClockRunning = true;
+            simulationHandler.postAtTime(clockedInputTick,
+                                         nextInputTick);
+        }
+        else {
+            inputClockRunning = false;
+        }
+    }
+
+    @Override
+    public void gravityTick() {
+        engine.tick();
+        publish(0);
+    }
+
+    /**
+     * Publishes the engine's state after an update and, the first time the
+     * game is found to be over, stops gravity and tells the UI thread.
+     * Called on the simulation thread.
+     * @param sentNanos long from System.nanoTime() when the earliest input
+     * applied in this update was sent, or 0 if there was none
+     */
+    private void publish(long sentNanos) {
+        if (engine.getLevel() != level) {
+            level = engine.getLevel();
+            gravity.setInterval(engine.getGravityMillis());
+            leaderboard.refreshIfStale();
+        }
+        TetrisSnapshot snapshot = snapshots.getBackBuffer();
+        snapshot.copyFrom(engine);
+        snapshot.setInputNanos(sentNanos);
+        snapshots.publish();
+        screen.snapshotPublished();
+        if (engine.isGameOver() && !gameOverPublished) {
+            gameOverPublished = true;
+            gravity.stop();
+            finalScore = engine.getScore();
+            mainHandler.post(reportGameOver);
+        }
+    }
+
+    /**
+     * Tells AndroidTetris the game is over. Called on the UI thread.
+     */
+    private void reportGameOver() {
+        gameOver = true;
+        ((AndroidTetris)theContext).gameOver(checkHighScorer());
+    }
+
+    /**
+     * Decides from the prefetched high score table if the final score gets
+     * onto it. Never touches the network.
+     * @return int representing the final score if it qualifies, otherwise 0
+     */
+    private int checkHighScorer() {
+        if (leaderboard.qualifies(finalScore)) {
+            return finalScore;
+        }
+        return 0;
+    }
+}
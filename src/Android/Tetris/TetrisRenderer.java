@@ -0,0 +1,352 @@
+package Android.Tetris;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Paints the state of a TetrisEngine onto a Canvas. Every Paint and Rect is
+ * allocated up front and reused, so painting a frame allocates nothing once
+ * each piece color has been seen. The background and settled pile are kept
+ * in an offscreen Bitmap that is only repainted after the pile changes.
+ * @author Zach Cotter
+ */
+public class TetrisRenderer {
+
+    private static final int TEXT_SIZE = 20;
+    private static final int SCORE_X = 5;
+    private static final int SCORE_Y = 15;
+    private static final int GHOST_ALPHA = 0x50;
+    private static final int PREVIEW_MARGIN = 5;
+    /**
+     * Size of the square slot each preview piece is painted in, in preview
+     * blocks, which are half the size of a grid block.
+     */
+    private static final int PREVIEW_SLOT = 4;
+    private final Paint background;
+    private final Paint ghost;
+    private final Paint textPaint;
+    private final Rect scratch;
+    private int[] paletteColors;
+    private Paint[] palette;
+    private int paletteSize;
+    private final int blockWidth;
+    private final int blockHeight;
+    private int lastScore;
+    private String scoreText;
+    private Bitmap pileBitmap;
+    private Canvas pileCanvas;
+    private boolean pileDirty;
+
+    /**
+     * Constructs a renderer with a palette holding the color of every
+     * predefined Tetra.
+     * @param blockWidth int representing width of a block in pixels
+     * @param blockHeight int representing height of a block in pixels
+     */
+    public TetrisRenderer(int blockWidth,
+                          int blockHeight) {
+        this.blockWidth = blockWidth;
+        this.blockHeight = blockHeight;
+        background = new Paint();
+        background.setColor(Color.WHITE);
+        ghost = new Paint();
+        textPaint = new Paint();
+        textPaint.setTextSize(TEXT_SIZE);
+        scratch = new Rect();
+        paletteColors = new int[Tetra.NUMBER_OF_TETRAS];
+        palette = new Paint[Tetra.NUMBER_OF_TETRAS];
+        paletteSize = 0;
+        for (int i = 0; i < Tetra.NUMBER_OF_TETRAS; i++) {
+            getPaint(TetraTemplate.get(i).getColor());
+        }
+        lastScore = 0;
+        scoreText = "0";
+        pileDirty = true;
+    }
+
+    /**
+     * Marks the cached pile as stale so it is repainted on the next call to
+     * drawPile. Must be called whenever blocks are added to or removed from
+     * the Board.
+     */
+    public void invalidatePile() {
+        pileDirty = true;
+    }
+
+    /**
+     * Frees the cached pile Bitmap. It is recreated if drawPile is called
+     * again.
+     */
+    public void recycle() {
+        if (pileBitmap != null) {
+            pileBitmap.recycle();
+            pileBitmap = null;
+            pileCanvas = null;
+        }
+        pileDirty = true;
+    }
+
+    /**
+     * Paints the background and the settled pile from the offscreen cache,
+     * repainting the cache first if the pile has changed since it was last
+     * painted.
+     * @param canvas Canvas to paint on
+     * @param board Board to paint
+     * @param width int representing width in pixels
+     * @param height int representing height in pixels
+     */
+    public void drawPile(Canvas canvas,
+                         Board board,
+                         int width,
+                         int height) {
+        if (pileBitmap == null) {
+            pileBitmap = Bitmap.createBitmap(width,
+                                             height,
+                                             Bitmap.Config.ARGB_8888);
+            pileCanvas = new Canvas(pileBitmap);
+            pileDirty = true;
+        }
+        if (pileDirty) {
+            drawBackground(pileCanvas,
+                           width,
+                           height);
+            drawBoard(pileCanvas,
+                      board);
+            pileDirty = false;
+        }
+        canvas.drawBitmap(pileBitmap,
+                          0,
+                          0,
+                          null);
+    }
+
+    /**
+     * Accesses the palette Paint for the given color, adding one if the color
+     * has not been seen before.
+     * @param color Color to paint with
+     * @return shared Paint of that color
+     */
+    private Paint getPaint(int color) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (paletteColors[i] == color) {
+                return palette[i];
+            }
+        }
+        if (paletteSize == palette.length) {
+            int[] colors = new int[paletteSize * 2];
+            Paint[] paints = new Paint[paletteSize * 2];
+            System.arraycopy(paletteColors,
+                             0,
+                             colors,
+                             0,
+                             paletteSize);
+            System.arraycopy(palette,
+                             0,
+                             paints,
+                             0,
+                             paletteSize);
+            paletteColors = colors;
+            palette = paints;
+        }
+        Paint p = new Paint();
+        p.setColor(color);
+        paletteColors[paletteSize] = color;
+        palette[paletteSize] = p;
+        paletteSize++;
+        return p;
+    }
+
+    /**
+     * Fills the given area with the background color.
+     * @param canvas Canvas to paint on
+     * @param width int representing width in pixels
+     * @param height int representing height in pixels
+     */
+    public void drawBackground(Canvas canvas,
+                               int width,
+                               int height) {
+        scratch.set(0,
+                    0,
+                    width,
+                    height);
+        canvas.drawRect(scratch,
+                        background);
+    }
+
+    /**
+     * Paints a block of the given color in the given grid space.
+     * @param canvas Canvas to paint on
+     * @param x int representing x position in grid
+     * @param y int representing y position in grid
+     * @param color Color of the block
+     */
+    public void drawBlock(Canvas canvas,
+                          int x,
+                          int y,
+                          int color) {
+        int left = x * blockWidth;
+        int top = y * blockHeight;
+        scratch.set(left,
+                    top,
+                    left + blockWidth,
+                    top + blockHeight);
+        canvas.drawRect(scratch,
+                        getPaint(color));
+    }
+
+    /**
+     * Paints every block of the given Tetra.
+     * @param canvas Canvas to paint on
+     * @param tetra Tetra to paint
+     */
+    public void drawTetra(Canvas canvas,
+                          Tetra tetra) {
+        for (int i = 0; i < tetra.size(); i++) {
+            drawBlock(canvas,
+                      tetra.getX(i),
+                      tetra.getY(i),
+                      tetra.getColor());
+        }
+    }
+
+    /**
+     * Paints a faint copy of the given Tetra the given number of rows below
+     * it, showing where it would land if dropped.
+     * @param canvas Canvas to paint on
+     * @param tetra Tetra to paint the ghost of
+     * @param distance int representing rows the Tetra can fall
+     */
+    public void drawGhost(Canvas canvas,
+                          Tetra tetra,
+                          int distance) {
+        if (distance == 0) {
+            return;
+        }
+        ghost.setColor(tetra.getColor());
+        ghost.setAlpha(GHOST_ALPHA);
+        for (int i = 0; i < tetra.size(); i++) {
+            int left = tetra.getX(i) * blockWidth;
+            int top = (tetra.getY(i) + distance) * blockHeight;
+            scratch.set(left,
+                        top,
+                        left + blockWidth,
+                        top + blockHeight);
+            canvas.drawRect(scratch,
+                            ghost);
+        }
+    }
+
+    /**
+     * Paints the upcoming pieces at half size, stacked in the top right
+     * corner, next piece first.
+     * @param canvas Canvas to paint on
+     * @param preview int[] of TetraTemplate indices
+     * @param width int representing width of the playing area in pixels
+     */
+    public void drawPreview(Canvas canvas,
+                            int[] preview,
+                            int width) {
+        int size = blockWidth / 2;
+        int slotLeft = width - PREVIEW_MARGIN - PREVIEW_SLOT * size;
+        for (int p = 0; p < preview.length; p++) {
+            TetraTemplate template = TetraTemplate.get(preview[p]);
+            int[] offsets = template.getRotations()[0];
+            int minX = 0;
+            int minY = 0;
+            for (int i = 0; i < offsets.length; i += 2) {
+                minX = Math.min(minX,
+                                offsets[i]);
+                minY = Math.min(minY,
+                                offsets[i + 1]);
+            }
+            int slotTop = PREVIEW_MARGIN + p * PREVIEW_SLOT * size;
+            Paint paint = getPaint(template.getColor());
+            for (int i = 0; i < offsets.length; i += 2) {
+                int left = slotLeft + (offsets[i] - minX) * size;
+                int top = slotTop + (offsets[i + 1] - minY) * size;
+                scratch.set(left,
+                            top,
+                            left + size,
+                            top + size);
+                canvas.drawRect(scratch,
+                                paint);
+            }
+        }
+    }
+
+    /**
+     * Sets the given Rect to the area drawPreview paints in.
+     * @param count int representing pieces in the preview queue
+     * @param width int representing width of the playing area in pixels
+     * @param bounds Rect that receives the area
+     */
+    public void getPreviewBounds(int count,
+                                 int width,
+                                 Rect bounds) {
+        int size = blockWidth / 2;
+        bounds.set(width - PREVIEW_MARGIN - PREVIEW_SLOT * size,
+                   PREVIEW_MARGIN,
+                   width - PREVIEW_MARGIN,
+                   PREVIEW_MARGIN + count * PREVIEW_SLOT * size);
+    }
+
+    /**
+     * Paints every block of the settled pile.
+     * @param canvas Canvas to paint on
+     * @param board Board to paint
+     */
+    public void drawBoard(Canvas canvas,
+                          Board board) {
+        for (int y = 0; y < Board.HEIGHT; y++) {
+            int row = board.getRow(y);
+            for (int x = 0; row != 0; x++, row >>>= 1) {
+                if ((row & 1) != 0) {
+                    drawBlock(canvas,
+                              x,
+                              y,
+                              board.getColor(x,
+                                             y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints the score in the top left corner. The text is only rebuilt when
+     * the score changes.
+     * @param canvas Canvas to paint on
+     * @param score int representing score
+     */
+    public void drawScore(Canvas canvas,
+                          int score) {
+        updateScoreText(score);
+        canvas.drawText(scoreText,
+                        SCORE_X,
+                        SCORE_Y,
+                        textPaint);
+    }
+
+    /**
+     * Sets the given Rect to the area the given score is painted in.
+     * @param score int representing score
+     * @param bounds Rect that receives the area
+     */
+    public void getScoreBounds(int score,
+                               Rect bounds) {
+        updateScoreText(score);
+        bounds.set(0,
+                   0,
+                   SCORE_X + (int) Math.ceil(textPaint.measureText(scoreText)),
+                   SCORE_Y + (int) Math.ceil(textPaint.descent()));
+    }
+
+    private void updateScoreText(int score) {
+        if (score != lastScore) {
+            lastScore = score;
+            scoreText = Integer.toString(score);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package Android.Tetris;
+
+/**
+ * A copy of everything needed to paint one frame of a TetrisEngine, so a
+ * render thread can paint without holding the engine while it draws. Copying
+ * reuses this snapshot's storage and allocates nothing unless the engine's
+ * preview queue changes size.
+ * @author Zach Cotter
+ */
+public class TetrisSnapshot {
+
+    private final Board board;
+    private final Tetra current;
+    private int score;
+    private int pileVersion;
+    private int dropDistance;
+    private int[] preview;
+    private long inputNanos;
+    private boolean gameOver;
+
+    /**
+     * Constructs an empty snapshot.
+     */
+    public TetrisSnapshot() {
+        board = new Board();
+        current = new Tetra();
+        preview = new int[PieceGenerator.DEFAULT_PREVIEW_SIZE];
+    }
+
+    /**
+     * Copies the state of the given engine into this snapshot. The caller
+     * must keep the engine from changing during the copy.
+     * @param engine TetrisEngine to copy
+     */
+    public void copyFrom(TetrisEngine engine) {
+        board.copyFrom(engine.getBoard());
+        current.copyFrom(engine.getCurrent());
+        score = engine.getScore();
+        pileVersion = engine.getPileVersion();
+        dropDistance = engine.getDropDistance();
+        PieceGenerator pieces = engine.getPieces();
+        if (preview.length != pieces.getPreviewSize()) {
+            preview = new int[pieces.getPreviewSize()];
+        }
+        for (int i = 0; i < preview.length; i++) {
+            preview[i] = pieces.peek(i);
+        }
+        inputNanos = 0;
+        gameOver = engine.isGameOver();
+    }
+
+    /**
+     * Accessor for the copied pile.
+     * @return Board of the snapshot
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Accessor for the copied Tetra in motion.
+     * @return Tetra of the snapshot
+     */
+    public Tetra getCurrent() {
+        return current;
+    }
+
+    /**
+     * Accessor for the copied score.
+     * @return int representing score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Accessor for the copied pile version.
+     * @return int representing number of changes to the pile
+     */
+    public int getPileVersion() {
+        return pileVersion;
+    }
+
+    /**
+     * Accessor for how far the copied Tetra in motion could fall, which is
+     * where its ghost is painted.
+     * @return int representing rows the Tetra can fall
+     */
+    public int getDropDistance() {
+        return dropDistance;
+    }
+
+    /**
+     * Accessor for the copied preview queue.
+     * @return int[] of TetraTemplate indices, next piece first
+     */
+    public int[] getPreview() {
+        return preview;
+    }
+
+    /**
+     * Mutates the time of the earliest input this snapshot is the first to
+     * show.
+     * @param inputNanos long from System.nanoTime(), or 0 if it shows no new
+     * input
+     */
+    public void setInputNanos(long inputNanos) {
+        this.inputNanos = inputNanos;
+    }
+
+    /**
+     * Accessor for the time of the earliest input this snapshot is the first
+     * to show.
+     * @return long from System.nanoTime(), or 0 if it shows no new input
+     */
+    public long getInputNanos() {
+        return inputNanos;
+    }
+
+    /**
+     * Determines if the game had ended when the snapshot was taken.
+     * @return whether or not the game had ended
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
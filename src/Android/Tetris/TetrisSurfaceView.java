@@ -0,0 +1,207 @@
+package Android.Tetris;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Paints a TetrisGame onto a Surface from a dedicated render thread, one
+ * frame per vsync, so drawing never competes with touch dispatch on the UI
+ * thread. Each frame acquires the newest TetrisSnapshot the game's simulation
+ * thread has published and paints it, so the two threads never wait on each
+ * other.
+ * @author Zach Cotter
+ */
+public class TetrisSurfaceView extends SurfaceView
+        implements SurfaceHolder.Callback, TetrisGame.Screen {
+
+    private final TetrisGame game;
+    private final TetrisRenderer renderer;
+    private final int panelWidth;
+    private final int panelHeight;
+    private volatile boolean surfaceStale;
+    private RenderThread renderThread;
+
+    /**
+     * Waits for each vsync and paints a frame if the game changed since the
+     * last one.
+     */
+    private class RenderThread extends HandlerThread
+            implements Choreographer.FrameCallback {
+
+        private final SurfaceHolder holder;
+        private Choreographer choreographer;
+        private volatile boolean running;
+        private int drawnPileVersion;
+
+        public RenderThread(SurfaceHolder holder) {
+            super("TetrisRender");
+            this.holder = holder;
+            running = true;
+            drawnPileVersion = -1;
+        }
+
+        @Override
+        protected void onLooperPrepared() {
+            choreographer = Choreographer.getInstance();
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            drawFrame();
+            choreographer.postFrameCallback(this);
+        }
+
+        private void drawFrame() {
+            SnapshotBuffer snapshots = game.getSnapshots();
+            boolean fresh = snapshots.acquire();
+            if (!fresh && !surfaceStale) {
+                return;
+            }
+            surfaceStale = false;
+            TetrisSnapshot snapshot = snapshots.getFrontBuffer();
+            if (snapshot.getPileVersion() != drawnPileVersion) {
+                drawnPileVersion = snapshot.getPileVersion();
+                renderer.invalidatePile();
+            }
+            long start = System.nanoTime();
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            Tracer.begin(Tracer.DRAW);
+            try {
+                if (snapshot.isGameOver()) {
+                    renderer.drawBackground(canvas,
+                                            panelWidth,
+                                            panelHeight);
+                }
+                else {
+                    renderer.drawPile(canvas,
+                                      snapshot.getBoard(),
+                                      panelWidth,
+                                      panelHeight);
+                    renderer.drawGhost(canvas,
+                                       snapshot.getCurrent(),
+                                       snapshot.getDropDistance());
+                    renderer.drawTetra(canvas,
+                                       snapshot.getCurrent());
+                    renderer.drawScore(canvas,
+                                       snapshot.getScore());
+                    renderer.drawPreview(canvas,
+                                         snapshot.getPreview(),
+                                         panelWidth);
+                }
+            }
+            finally {
+                holder.unlockCanvasAndPost(canvas);
+                Tracer.end(Tracer.DRAW);
+            }
+            long end = System.nanoTime();
+            GameMetrics metrics = game.getMetrics();
+            metrics.getFrameTime().record(end - start);
+            long sentNanos = snapshot.getInputNanos();
+            if (fresh && sentNanos != 0) {
+                metrics.getInputToRender().record(end - sentNanos);
+            }
+        }
+
+        /**
+         * Stops painting and waits for the thread to finish its last frame.
+         */
+        public void shutdown() {
+            running = false;
+            quit();
+            try {
+                join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public TetrisSurfaceView(Context context,
+                             int xSize,
+                             int ySize) {
+        super(context);
+        panelWidth = xSize;
+        panelHeight = ySize;
+        renderer = new TetrisRenderer(panelWidth / Board.WIDTH,
+                                      panelHeight / Board.HEIGHT);
+        surfaceStale = true;
+        getHolder().addCallback(this);
+        game = new TetrisGame(context,
+                              panelWidth,
+                              this);
+    }
+
+    public void pause() {
+        game.pause();
+    }
+
+    /**
+     * Continues the game after pause()
+     */
+    public void unpause() {
+        game.unpause();
+    }
+
+    /**
+     * Accessor for the game being painted.
+     * @return TetrisGame of this view
+     */
+    public TetrisGame getGame() {
+        return game;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return game.onTouchEvent(event);
+    }
+
+    /**
+     * Does nothing, since the render thread looks for a new snapshot on
+     * every vsync.
+     */
+    @Override
+    public void snapshotPublished() {
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new RenderThread(holder);
+        renderThread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder,
+                               int format,
+                               int width,
+                               int height) {
+        surfaceStale = true;
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        if (renderThread != null) {
+            renderThread.shutdown();
+            renderThread = null;
+        }
+        renderer.recycle();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        game.quit();
+    }
+}
@@ -0,0 +1,115 @@
+package Android.Tetris;
+
+import android.view.MotionEvent;
+
+/**
+ * Turns touches into game input as the finger moves rather than when it
+ * lifts. Dragging sideways past SHIFT_DISTANCE holds a shift that way, and
+ * each further column dragged holds it again; keeping the finger still lets
+ * AutoShift repeat the shift. Dragging vertically past DROP_DISTANCE drops
+ * the Tetra in motion. A touch that does neither is a tap, which rotates the
+ * Tetra clockwise on the right half of the screen or counter-clockwise on
+ * the left half when the finger lifts.
+ * @author Zach Cotter
+ */
+public class TouchInput {
+
+    private static final int SHIFT_DISTANCE = 40;
+    private static final int DROP_DISTANCE = 100;
+    private final TetrisGame game;
+    private final int middle;
+    private final int columnWidth;
+    private float downX;
+    private float downY;
+    private float anchorX;
+    private int held;
+    private boolean acted;
+
+    /**
+     * Constructs a recognizer sending input to the given game.
+     * @param game TetrisGame to send input to
+     * @param panelWidth int representing width of the playing area in pixels
+     */
+    public TouchInput(TetrisGame game,
+                      int panelWidth) {
+        this.game = game;
+        middle = panelWidth / 2;
+        columnWidth = Math.max(SHIFT_DISTANCE,
+                               panelWidth / Board.WIDTH);
+    }
+
+    /**
+     * Sends the input recognized from one touch event. Called on the UI
+     * thread.
+     * @param event MotionEvent delivered to the view
+     * @return true, since every event is consumed
+     */
+    public boolean onTouchEvent(MotionEvent event) {
+        int action = event.getAction() & MotionEvent.ACTION_MASK;
+        if (action == MotionEvent.ACTION_DOWN) {
+            downX = event.getX();
+            downY = event.getY();
+            anchorX = downX;
+            held = 0;
+            acted = false;
+        }
+        else if (action == MotionEvent.ACTION_MOVE) {
+            move(event.getX(),
+                 event.getY());
+        }
+        else if (action == MotionEvent.ACTION_UP) {
+            move(event.getX(),
+                 event.getY());
+            release();
+            if (!acted) {
+                float fX = event.getX();
+                if (fX > middle) {
+                    game.send(TetrisEngine.INPUT_ROTATE_CLOCKWISE);
+                }
+                else if (fX < middle) {
+                    game.send(TetrisEngine.INPUT_ROTATE_COUNTER_CLOCKWISE);
+                }
+            }
+        }
+        else if (action == MotionEvent.ACTION_CANCEL) {
+            release();
+            acted = true;
+        }
+        return true;
+    }
+
+    private void move(float x,
+                      float y) {
+        if (acted && held == 0) {
+            return;
+        }
+        if (held == 0
+                && Math.abs(y - downY) > DROP_DISTANCE
+                && Math.abs(x - downX) < SHIFT_DISTANCE) {
+            game.send(TetrisEngine.INPUT_DROP);
+            acted = true;
+            return;
+        }
+        float dx = x - anchorX;
+        int direction = dx > 0 ? 1 : -1;
+        float needed = (direction == held) ? columnWidth : SHIFT_DISTANCE;
+        if (Math.abs(dx) < needed) {
+            return;
+        }
+        //a hold shifts once and restarts the DAS countdown, so only a
+        //finger that stops moving auto-repeats.
+        game.send(direction > 0
+                  ? AutoShift.INPUT_HOLD_RIGHT
+                  : AutoShift.INPUT_HOLD_LEFT);
+        held = direction;
+        anchorX = x;
+        acted = true;
+    }
+
+    private void release() {
+        if (held != 0) {
+            game.send(AutoShift.INPUT_RELEASE);
+            held = 0;
+        }
+    }
+}
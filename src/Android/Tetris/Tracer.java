@@ -0,0 +1,171 @@
+package Android.Tetris;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the beginning and end of each phase of the game loop into a
+ * preallocated ring buffer shared by every thread, in the manner of
+ * android.os.Trace. Recording is always on: it costs a clock read, an atomic
+ * increment and a few array stores, and never allocates. Once the buffer is
+ * full the oldest events are overwritten, so a dump taken after a stutter
+ * shows the last CAPACITY events leading up to it, in the Chrome trace event
+ * format that chrome://tracing and Perfetto open.
+ * @author Zach Cotter
+ */
+public class Tracer {
+
+    public static final int STEP = 0;
+    public static final int MOVE = 1;
+    public static final int LOCK = 2;
+    public static final int CLEAR = 3;
+    public static final int DRAW = 4;
+    public static final int TOUCH = 5;
+    private static final String[] NAMES = {"step",
+                                           "attemptToMoveCurrent",
+                                           "addCurrentToPile",
+                                           "dumpFullRows",
+                                           "onDraw",
+                                           "onTouchEvent"};
+    private static final int CAPACITY = 1 << 13;
+    private static final int MASK = CAPACITY - 1;
+    private static final int END = 1;
+    private static final long WRITING = -1;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final long[] times = new long[CAPACITY];
+    private static final long[] threads = new long[CAPACITY];
+    private static final int[] events = new int[CAPACITY];
+    /**
+     * One more than the index of the event held in each slot, WRITING while
+     * the slot is being overwritten, or 0 if it has never been written.
+     */
+    private static final AtomicLongArray written = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong next = new AtomicLong();
+    private static volatile boolean enabled = true;
+
+    private Tracer() {
+    }
+
+    /**
+     * Turns recording on or off.
+     * @param enabled whether or not events are recorded
+     */
+    public static void setEnabled(boolean enabled) {
+        Tracer.enabled = enabled;
+    }
+
+    /**
+     * Records the beginning of a phase on the calling thread.
+     * @param phase int representing one of the phase constants
+     */
+    public static void begin(int phase) {
+        record(phase << 1);
+    }
+
+    /**
+     * Records the end of a phase on the calling thread.
+     * @param phase int representing one of the phase constants
+     */
+    public static void end(int phase) {
+        record((phase << 1) | END);
+    }
+
+    private static void record(int event) {
+        if (!enabled) {
+            return;
+        }
+        long index = next.getAndIncrement();
+        int slot = (int) index & MASK;
+        written.set(slot,
+                    WRITING);
+        times[slot] = System.nanoTime();
+        threads[slot] = Thread.currentThread().getId();
+        events[slot] = event;
+        written.set(slot,
+                    index + 1);
+    }
+
+    /**
+     * Writes the events in the buffer, oldest first, as a Chrome trace JSON
+     * object. Events overwritten while the dump is being taken are skipped.
+     * @param out PrintWriter to write to
+     */
+    public static void dump(PrintWriter out) {
+        Map<Long, String> threadNames = new HashMap<Long, String>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            threadNames.put(thread.getId(),
+                            thread.getName());
+        }
+        long last = next.get();
+        long first = Math.max(0,
+                              last - CAPACITY);
+        out.print("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean comma = false;
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            if (comma) {
+                out.print(',');
+            }
+            out.print("{\"name\":\"thread_name\",\"ph\":\"M\",");
+            out.print("\"pid\":1,\"tid\":");
+            out.print(thread.getKey());
+            out.print(",\"args\":{\"name\":\"");
+            String name = thread.getValue().replace("\\",
+                                                    "\\\\");
+            out.print(name.replace("\"",
+                                   "\\\""));
+            out.print("\"}}");
+            comma = true;
+        }
+        for (long index = first; index < last; index++) {
+            int slot = (int) index & MASK;
+            if (written.get(slot) != index + 1) {
+                continue;
+            }
+            long time = times[slot];
+            long thread = threads[slot];
+            int event = events[slot];
+            if (written.get(slot) != index + 1) {
+                continue;
+            }
+            if (comma) {
+                out.print(',');
+            }
+            out.print("{\"name\":\"");
+            out.print(NAMES[event >> 1]);
+            out.print("\",\"ph\":\"");
+            out.print((event & END) == END ? 'E' : 'B');
+            out.print("\",\"pid\":1,\"tid\":");
+            out.print(thread);
+            out.print(",\"ts\":");
+            out.print(time / NANOS_PER_MICRO);
+            out.print('}');
+            comma = true;
+        }
+        out.println("]}");
+    }
+
+    /**
+     * Writes the events in the buffer to the given file as Chrome trace
+     * JSON, replacing its contents.
+     * @param file File to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            dump(out);
+        }
+        finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package Android.Tetris;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds an AutoShift the holds that TouchInput sends for a drag, one per
+ * column crossed, between input ticks, and checks where the Tetra in motion
+ * ends up. Compile this directory together with src/ against junit 4 and run
+ * it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class AutoShiftTest {
+
+    private static final int TICK_MILLIS = 10;
+    private static final int DELAY_TICKS = 10;
+    private static final int REPEAT_TICKS = 2;
+    private TetrisEngine engine;
+    private AutoShift autoShift;
+    private int wall;
+
+    @Before
+    public void setUp() {
+        engine = new TetrisEngine(1);
+        autoShift = new AutoShift(TICK_MILLIS,
+                                  DELAY_TICKS * TICK_MILLIS,
+                                  REPEAT_TICKS * TICK_MILLIS);
+        while (engine.attemptToMoveCurrent(-1)) {
+            // starts every test against the left wall
+        }
+        wall = engine.getCurrent().findLeftBound();
+    }
+
+    private void ticks(int count) {
+        for (int i = 0; i < count; i++) {
+            autoShift.tick(engine);
+        }
+    }
+
+    private int column() {
+        return engine.getCurrent().findLeftBound() - wall;
+    }
+
+    @Test
+    public void dragShiftsOncePerColumn() {
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS - 1);
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS - 1);
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS - 1);
+        autoShift.apply(engine,
+                        AutoShift.INPUT_RELEASE);
+        ticks(DELAY_TICKS);
+        assertEquals(3,
+                     column());
+    }
+
+    @Test
+    public void stationaryHoldRepeatsAfterLastDragShift() {
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS - 1);
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS - 1);
+        assertEquals(2,
+                     column());
+        ticks(1);
+        assertEquals(3,
+                     column());
+        ticks(REPEAT_TICKS);
+        assertEquals(4,
+                     column());
+    }
+
+    @Test
+    public void reversingDirectionRestartsTheDelay() {
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_RIGHT);
+        ticks(DELAY_TICKS + REPEAT_TICKS);
+        assertEquals(3,
+                     column());
+        autoShift.apply(engine,
+                        AutoShift.INPUT_HOLD_LEFT);
+        ticks(DELAY_TICKS - 1);
+        assertEquals(2,
+                     column());
+    }
+}
@@ -0,0 +1,202 @@
+package Android.Tetris;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the statistics a Board keeps up to date incrementally, and the
+ * distance it finds from its skyline, against the same figures recomputed
+ * by brute force from a plain grid kept alongside it. Compile this directory
+ * together with src/ against junit 4 and run it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class BoardTest {
+
+    private static final long SEED = 7;
+    private static final int ROUNDS = 2000;
+    private static final int COLOR = 0xFF00FF00;
+
+    /**
+     * Fills a random cell, weighted towards the bottom of the board, and
+     * records it in the grid.
+     */
+    private static void fillRandomCell(Board board,
+                                       boolean[][] grid,
+                                       FastRandom random) {
+        int x = random.nextInt(Board.WIDTH);
+        int y = Board.HEIGHT - 1 - random.nextInt(random.nextInt(Board.HEIGHT)
+                                                  + 1);
+        board.set(x,
+                  y,
+                  COLOR);
+        grid[y][x] = true;
+    }
+
+    /**
+     * Removes the full rows of the grid the slow way, one row at a time.
+     */
+    private static int clearGrid(boolean[][] grid) {
+        int count = 0;
+        for (int y = Board.HEIGHT - 1; y >= 0; y--) {
+            boolean full = true;
+            for (int x = 0; x < Board.WIDTH; x++) {
+                full &= grid[y][x];
+            }
+            if (full) {
+                for (int above = y; above > 0; above--) {
+                    grid[above] = grid[above - 1].clone();
+                }
+                grid[0] = new boolean[Board.WIDTH];
+                count++;
+                y++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertMatchesGrid(Board board,
+                                          boolean[][] grid) {
+        int occupied = 0;
+        int aggregate = 0;
+        int holes = 0;
+        int topRow = Board.HEIGHT;
+        for (int y = 0; y < Board.HEIGHT; y++) {
+            int fill = 0;
+            int mask = 0;
+            for (int x = 0; x < Board.WIDTH; x++) {
+                if (grid[y][x]) {
+                    fill++;
+                    mask |= 1 << x;
+                }
+                assertEquals(grid[y][x],
+                             board.isOccupied(x,
+                                              y));
+            }
+            assertEquals(mask,
+                         board.getRow(y));
+            assertEquals(fill,
+                         board.getRowFill(y));
+            assertEquals(fill == Board.WIDTH,
+                         board.isRowFull(y));
+            occupied += fill;
+        }
+        for (int x = 0; x < Board.WIDTH; x++) {
+            int surface = Board.HEIGHT;
+            for (int y = Board.HEIGHT - 1; y >= 0; y--) {
+                if (grid[y][x]) {
+                    surface = y;
+                }
+            }
+            for (int y = surface; y < Board.HEIGHT; y++) {
+                if (!grid[y][x]) {
+                    holes++;
+                }
+            }
+            assertEquals(surface,
+                         board.getSurface(x));
+            assertEquals(Board.HEIGHT - surface,
+                         board.getColumnHeight(x));
+            aggregate += Board.HEIGHT - surface;
+            topRow = Math.min(topRow,
+                              surface);
+        }
+        assertEquals(occupied,
+                     board.getOccupiedCount());
+        assertEquals(aggregate,
+                     board.getAggregateHeight());
+        assertEquals(holes,
+                     board.getHoleCount());
+        assertEquals(topRow,
+                     board.getTopRow());
+        assertEquals(Board.HEIGHT - topRow,
+                     board.getMaxHeight());
+        assertEquals(occupied == 0,
+                     board.isEmpty());
+    }
+
+    @Test
+    public void statisticsMatchRecountAfterPlacementsAndClears() {
+        FastRandom random = new FastRandom(SEED);
+        Board board = new Board();
+        boolean[][] grid = new boolean[Board.HEIGHT][Board.WIDTH];
+        int[] cleared = new int[Board.HEIGHT];
+        int clears = 0;
+        assertMatchesGrid(board,
+                          grid);
+        for (int round = 0; round < ROUNDS; round++) {
+            fillRandomCell(board,
+                           grid,
+                           random);
+            if (random.nextInt(8) == 0) {
+                //completes a row so clears happen often
+                int y = Board.HEIGHT - 1 - random.nextInt(4);
+                for (int x = 0; x < Board.WIDTH; x++) {
+                    board.set(x,
+                              y,
+                              COLOR);
+                    grid[y][x] = true;
+                }
+            }
+            assertMatchesGrid(board,
+                              grid);
+            int expected = clearGrid(grid);
+            assertEquals(expected,
+                         board.clearFullRows(cleared));
+            clears += expected;
+            assertMatchesGrid(board,
+                              grid);
+            if (board.getTopRow() < 4) {
+                board.clear();
+                grid = new boolean[Board.HEIGHT][Board.WIDTH];
+                assertMatchesGrid(board,
+                                  grid);
+            }
+        }
+        assertTrue(clears > 0);
+    }
+
+    @Test
+    public void dropDistanceMatchesSteppingUnderOverhangs() {
+        FastRandom random = new FastRandom(SEED);
+        Board board = new Board();
+        boolean[][] grid = new boolean[Board.HEIGHT][Board.WIDTH];
+        int tucked = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            if (round % 50 == 0) {
+                board.clear();
+                grid = new boolean[Board.HEIGHT][Board.WIDTH];
+                for (int i = 0; i < 40; i++) {
+                    fillRandomCell(board,
+                                   grid,
+                                   random);
+                }
+            }
+            Tetra piece = new Tetra(TetraTemplate.get(
+                    random.nextInt(Tetra.NUMBER_OF_TETRAS)));
+            piece.rotateTo(random.nextInt(4),
+                           random.nextInt(Board.WIDTH) - piece.getCenterX(),
+                           random.nextInt(Board.HEIGHT) - piece.getCenterY());
+            if (!piece.inbounds() || board.collides(piece,
+                                                    0,
+                                                    0)) {
+                continue;
+            }
+            for (int i = 0; i < piece.size(); i++) {
+                if (piece.getY(i) >= board.getSurface(piece.getX(i))) {
+                    tucked++;
+                    break;
+                }
+            }
+            int stepped = 0;
+            while (!board.collides(piece,
+                                   0,
+                                   stepped + 1)) {
+                stepped++;
+            }
+            assertEquals(stepped,
+                         board.dropDistance(piece));
+        }
+        assertTrue(tucked > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package Android.Tetris;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Decodes well-formed and malformed high score tables with a
+ * HighScoreReader. Compile this directory together with src/ against junit
+ * 4 and run it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class HighScoreReaderTest {
+
+    private static List<HighScoreEntry> read(String json,
+                                             int maxEntries)
+            throws IOException {
+        return new HighScoreReader(new StringReader(json)).read(maxEntries);
+    }
+
+    private static void assertMalformed(String json) {
+        try {
+            read(json,
+                 Integer.MAX_VALUE);
+            fail("Accepted " + json);
+        }
+        catch (IOException expected) {
+            // the table was rejected
+        }
+    }
+
+    @Test
+    public void scoresMayBeNumbersOrStrings() throws IOException {
+        List<HighScoreEntry> entries =
+                read("[{\"name\":\"ann\",\"score\":300},"
+                     + " {\"score\":\"200\",\"name\":\"bob\"},"
+                     + " {\"name\":\"cy\",\"score\":\" 100 \"}]",
+                     Integer.MAX_VALUE);
+        assertEquals(3,
+                     entries.size());
+        assertEquals("ann",
+                     entries.get(0).getName());
+        assertEquals(300,
+                     entries.get(0).getScore());
+        assertEquals("bob",
+                     entries.get(1).getName());
+        assertEquals(200,
+                     entries.get(1).getScore());
+        assertEquals(100,
+                     entries.get(2).getScore());
+    }
+
+    @Test
+    public void otherMembersAreSkipped() throws IOException {
+        List<HighScoreEntry> entries =
+                read("[{\"id\":7,\"name\":\"ann\",\"tags\":[{\"a\":[1,2]},"
+                     + "\"}\"],\"when\":null,\"score\":5}]",
+                     Integer.MAX_VALUE);
+        assertEquals(1,
+                     entries.size());
+        assertEquals(5,
+                     entries.get(0).getScore());
+    }
+
+    @Test
+    public void readingStopsAfterTheTopEntries() throws IOException {
+        HighScoreReader reader =
+                new HighScoreReader(new StringReader(
+                        "[{\"name\":\"ann\",\"score\":3},"
+                        + "{\"name\":\"bob\",\"score\":2},"
+                        + "{\"name\":\"cy\",\"score\":1},"
+                        + "this part is never read"));
+        List<HighScoreEntry> entries = reader.read(2);
+        assertEquals(2,
+                     entries.size());
+        assertEquals("bob",
+                     entries.get(1).getName());
+        assertFalse(reader.isFinished());
+    }
+
+    @Test
+    public void readingToTheEndFinishes() throws IOException {
+        HighScoreReader reader =
+                new HighScoreReader(new StringReader("[]"));
+        assertEquals(0,
+                     reader.read(10).size());
+        assertTrue(reader.isFinished());
+    }
+
+    @Test
+    public void malformedTablesAreRejected() {
+        assertMalformed("");
+        assertMalformed("{\"name\":\"ann\",\"score\":1}");
+        assertMalformed("[{\"name\":\"ann\",\"score\":1}");
+        assertMalformed("[{\"name\":\"ann\",\"score\":1} {}]");
+        assertMalformed("[{\"name\":\"ann\"}]");
+        assertMalformed("[{\"name\":\"ann\",\"score\":\"ten\"}]");
+        assertMalformed("[{\"name\":\"ann\",\"score\":1,\"x\":}]");
+        assertMalformed("[{\"name\":\"ann\",\"x\":},\"score\":1}]");
+        assertMalformed("[{\"name\":\"ann\",\"x\":[1},\"score\":1}]");
+        assertMalformed("[{\"name\":\"ann\",\"x\":{\"y\":1]},\"score\":1}]");
+        assertMalformed("[{\"name\":\"an\\q\",\"score\":1}]");
+    }
+}
@@ -0,0 +1,194 @@
+package Android.Tetris;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Runs a LeaderboardRepository against a stand-in scorecheck script served
+ * from a local com.sun.net.httpserver.HttpServer. Compile this directory
+ * together with src/ against junit 4 and Apache httpclient 4.0, the version
+ * Android ships, and run it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class LeaderboardRepositoryTest {
+
+    private static final long LONG_TTL_MILLIS = 60 * 60 * 1000;
+    private static final String FIRST_TABLE =
+            "[{\"name\":\"ann\",\"score\":\"300\"},"
+            + "{\"name\":\"bob\",\"score\":\"200\"}]";
+    private static final String SECOND_TABLE =
+            "[{\"name\":\"cat\",\"score\":\"500\"},"
+            + "{\"name\":\"ann\",\"score\":\"300\"}]";
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private HttpServer server;
+    private ScoreCheck scoreCheck;
+    private String url;
+    private ExecutorService worker;
+    private File cacheFile;
+
+    /**
+     * Answers every request with the current status and body, counting
+     * them.
+     */
+    private static class ScoreCheck implements HttpHandler {
+
+        volatile int status = 200;
+        volatile String body = FIRST_TABLE;
+        final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.sendResponseHeaders(status,
+                                         bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        scoreCheck = new ScoreCheck();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1",
+                                                         0),
+                                   0);
+        server.createContext("/scorecheck.php",
+                             scoreCheck);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort()
+              + "/scorecheck.php";
+        worker = Executors.newSingleThreadExecutor();
+        cacheFile = File.createTempFile("leaderboard",
+                                        ".txt");
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+        server.stop(0);
+        cacheFile.delete();
+    }
+
+    /**
+     * Waits for everything already handed to the worker to finish.
+     */
+    private void awaitWorker() throws Exception {
+        worker.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(10,
+               TimeUnit.SECONDS);
+    }
+
+    private LeaderboardRepository newRepository(long ttlMillis) {
+        return new LeaderboardRepository(url,
+                                         ttlMillis,
+                                         cacheFile,
+                                         worker,
+                                         INLINE);
+    }
+
+    @Test
+    public void freshTableIsReturnedFromCache() throws Exception {
+        LeaderboardRepository repository = newRepository(LONG_TTL_MILLIS);
+        assertNull(repository.get());
+        awaitWorker();
+        HighScore table = repository.get();
+        assertNotNull(table);
+        assertEquals(2,
+                     table.getEntries().size());
+        assertEquals(200,
+                     table.getValueToQualify());
+
+        scoreCheck.body = SECOND_TABLE;
+        assertSame(table,
+                   repository.get());
+        awaitWorker();
+        assertSame(table,
+                   repository.get());
+        assertEquals(1,
+                     scoreCheck.requests.get());
+    }
+
+    @Test
+    public void staleTableIsReturnedThenRefreshed() throws Exception {
+        LeaderboardRepository repository = newRepository(0);
+        repository.refresh();
+        awaitWorker();
+
+        scoreCheck.body = SECOND_TABLE;
+        HighScore stale = repository.get();
+        assertEquals("ann",
+                     stale.getEntries().get(0).getName());
+        awaitWorker();
+        assertEquals(2,
+                     scoreCheck.requests.get());
+        HighScore refreshed = repository.get();
+        assertEquals("cat",
+                     refreshed.getEntries().get(0).getName());
+        assertEquals(300,
+                     refreshed.getValueToQualify());
+    }
+
+    @Test
+    public void failedRefreshKeepsCachedTable() throws Exception {
+        LeaderboardRepository repository = newRepository(LONG_TTL_MILLIS);
+        repository.refresh();
+        awaitWorker();
+        HighScore cached = repository.get();
+
+        scoreCheck.status = 500;
+        scoreCheck.body = "Internal Server Error";
+        repository.refresh();
+        awaitWorker();
+        assertSame(cached,
+                   repository.get());
+
+        LeaderboardRepository restarted = newRepository(LONG_TTL_MILLIS);
+        awaitWorker();
+        HighScore reloaded = restarted.get();
+        assertNotNull(reloaded);
+        assertEquals(cached.toString(),
+                     reloaded.toString());
+    }
+
+    @Test
+    public void malformedTableKeepsCachedTable() throws Exception {
+        LeaderboardRepository repository = newRepository(LONG_TTL_MILLIS);
+        repository.refresh();
+        awaitWorker();
+        HighScore cached = repository.get();
+
+        scoreCheck.body = "[{\"name\":\"cat\"";
+        repository.refresh();
+        awaitWorker();
+        assertSame(cached,
+                   repository.get());
+    }
+}
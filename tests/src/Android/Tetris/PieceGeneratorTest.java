@@ -0,0 +1,110 @@
+package Android.Tetris;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deals long runs of pieces from each PieceGenerator.Policy and checks the
+ * property each one promises. Compile this directory together with src/
+ * against junit 4 and run it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class PieceGeneratorTest {
+
+    private static final long SEED = 42;
+    private static final int PIECES = 7 * 1000;
+    private static final int PREVIEW = PieceGenerator.DEFAULT_PREVIEW_SIZE;
+
+    private static int[] deal(PieceGenerator.Policy policy) {
+        PieceGenerator pieces = new PieceGenerator(SEED,
+                                                   policy,
+                                                   PREVIEW);
+        int[] dealt = new int[PIECES];
+        for (int i = 0; i < dealt.length; i++) {
+            dealt[i] = pieces.next();
+        }
+        return dealt;
+    }
+
+    @Test
+    public void sameSeedDealsSamePieces() {
+        assertArrayEquals(deal(new PieceGenerator.Uniform()),
+                          deal(new PieceGenerator.Uniform()));
+        assertArrayEquals(deal(new PieceGenerator.Bag()),
+                          deal(new PieceGenerator.Bag()));
+        assertArrayEquals(deal(new PieceGenerator.History(4,
+                                                          6)),
+                          deal(new PieceGenerator.History(4,
+                                                          6)));
+    }
+
+    @Test
+    public void uniformDealsEveryPiece() {
+        int[] counts = new int[Tetra.NUMBER_OF_TETRAS];
+        for (int piece : deal(new PieceGenerator.Uniform())) {
+            counts[piece]++;
+        }
+        for (int count : counts) {
+            // about 1000 each; far outside this range is a broken draw
+            assertTrue(count > 800 && count < 1200);
+        }
+    }
+
+    @Test
+    public void bagDealsEachPieceOncePerSeven() {
+        int[] dealt = deal(new PieceGenerator.Bag());
+        for (int start = 0; start < dealt.length; start += 7) {
+            boolean[] seen = new boolean[Tetra.NUMBER_OF_TETRAS];
+            for (int i = start; i < start + 7; i++) {
+                assertTrue(!seen[dealt[i]]);
+                seen[dealt[i]] = true;
+            }
+        }
+    }
+
+    @Test
+    public void historyRarelyRepeatsRecentPieces() {
+        int length = 4;
+        int[] dealt = deal(new PieceGenerator.History(length,
+                                                      6));
+        int repeats = 0;
+        for (int i = length; i < dealt.length; i++) {
+            for (int back = 1; back <= length; back++) {
+                if (dealt[i] == dealt[i - back]) {
+                    repeats++;
+                    break;
+                }
+            }
+        }
+        // a uniform draw matches one of the last four over half the time;
+        // six tries bring that down to a few percent
+        assertTrue(repeats < dealt.length / 5);
+    }
+
+    @Test
+    public void historyWithOneTryIsUniform() {
+        assertArrayEquals(deal(new PieceGenerator.Uniform()),
+                          deal(new PieceGenerator.History(4,
+                                                          1)));
+    }
+
+    @Test
+    public void resetStartsTheSequenceAgain() {
+        PieceGenerator.Policy policy = new PieceGenerator.History(4,
+                                                                  6);
+        PieceGenerator pieces = new PieceGenerator(SEED,
+                                                   policy,
+                                                   PREVIEW);
+        int[] first = new int[20];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = pieces.next();
+        }
+        pieces.reset();
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i],
+                         pieces.next());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package Android.Tetris;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs a ScoreJournal against stand-in postscore scripts served from a local
+ * com.sun.net.httpserver.HttpServer: one that predates batches and one that
+ * acknowledges ids. Compile this directory together with src/ against junit
+ * 4 and Apache httpclient 4.0, the version Android ships, and run it with
+ * JUnitCore.
+ * @author Zach Cotter
+ */
+public class ScoreJournalTest {
+
+    private static final int SCORES = 5;
+    private HttpServer server;
+    private PostScore postScore;
+    private String url;
+    private ScheduledExecutorService worker;
+    private File journalFile;
+
+    /**
+     * Stores the name and score fields of each post. Once acknowledging, it
+     * also stores each entry of the id[], name[] and score[] arrays and
+     * echoes the ids it has stored; otherwise array fields are ignored, as
+     * an older script would.
+     */
+    private static class PostScore implements HttpHandler {
+
+        volatile boolean acknowledgeSingles;
+        volatile boolean acknowledgeBatches;
+        final Map<String, String> stored = new LinkedHashMap<String, String>();
+        final List<String> legacyRows = new ArrayList<String>();
+        int singlePosts;
+        int batchPosts;
+
+        @Override
+        public synchronized void handle(HttpExchange exchange)
+                throws IOException {
+            Map<String, List<String>> fields = parse(exchange.getRequestBody());
+            StringBuilder reply = new StringBuilder();
+            if (fields.containsKey("name")) {
+                singlePosts++;
+                String name = fields.get("name").get(0);
+                legacyRows.add(name);
+                if (acknowledgeSingles) {
+                    String id = fields.get("id").get(0);
+                    stored.put(id,
+                               name);
+                    reply.append(id).append('\n');
+                }
+            }
+            else {
+                batchPosts++;
+                if (acknowledgeBatches) {
+                    List<String> ids = fields.get("id[]");
+                    List<String> names = fields.get("name[]");
+                    for (int i = 0; i < ids.size(); i++) {
+                        stored.put(ids.get(i),
+                                   names.get(i));
+                        reply.append(ids.get(i)).append('\n');
+                    }
+                }
+            }
+            byte[] bytes = reply.toString().getBytes("UTF-8");
+            exchange.sendResponseHeaders(200,
+                                         bytes.length == 0 ? -1
+                                                           : bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        private static Map<String, List<String>> parse(InputStream in)
+                throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[512];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer,
+                           0,
+                           read);
+            }
+            Map<String, List<String>> fields =
+                    new LinkedHashMap<String, List<String>>();
+            for (String pair : body.toString("UTF-8").split("&")) {
+                int equals = pair.indexOf('=');
+                String key = URLDecoder.decode(pair.substring(0,
+                                                              equals),
+                                               "UTF-8");
+                if (!fields.containsKey(key)) {
+                    fields.put(key,
+                               new ArrayList<String>());
+                }
+                fields.get(key).add(URLDecoder.decode(pair.substring(equals
+                                                                     + 1),
+                                                      "UTF-8"));
+            }
+            return fields;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        postScore = new PostScore();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1",
+                                                         0),
+                                   0);
+        server.createContext("/postscore.php",
+                             postScore);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort()
+              + "/postscore.php";
+        worker = Executors.newSingleThreadScheduledExecutor();
+        journalFile = File.createTempFile("scores",
+                                          ".journal");
+        journalFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+        server.stop(0);
+        journalFile.delete();
+    }
+
+    /**
+     * Submits SCORES scores while the worker is held up, so they are all
+     * pending when it first drains, then waits for it to finish.
+     */
+    private ScoreJournal submitAll() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ScoreJournal journal = new ScoreJournal(url,
+                                                journalFile,
+                                                worker);
+        for (int i = 0; i < SCORES; i++) {
+            journal.submit(new HighScoreEntry("player" + i,
+                                              100 * i));
+        }
+        release.countDown();
+        worker.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(10,
+               TimeUnit.SECONDS);
+        return journal;
+    }
+
+    @Test
+    public void scriptWithoutBatchesGetsOnePostPerScore() throws Exception {
+        ScoreJournal journal = submitAll();
+        assertEquals(0,
+                     journal.getPendingCount());
+        assertEquals(SCORES,
+                     postScore.singlePosts);
+        assertEquals(0,
+                     postScore.batchPosts);
+        assertEquals(SCORES,
+                     postScore.legacyRows.size());
+        assertFalse(journalFile.exists());
+    }
+
+    @Test
+    public void acknowledgingScriptGetsBatches() throws Exception {
+        postScore.acknowledgeSingles = true;
+        postScore.acknowledgeBatches = true;
+        ScoreJournal journal = submitAll();
+        assertEquals(0,
+                     journal.getPendingCount());
+        assertEquals(1,
+                     postScore.singlePosts);
+        assertEquals(1,
+                     postScore.batchPosts);
+        assertEquals(SCORES,
+                     postScore.stored.size());
+    }
+
+    @Test
+    public void unacknowledgedBatchIsSentAgainOneAtATime() throws Exception {
+        postScore.acknowledgeSingles = true;
+        ScoreJournal journal = submitAll();
+        assertEquals(0,
+                     journal.getPendingCount());
+        assertEquals(SCORES,
+                     postScore.stored.size());
+        assertEquals(SCORES,
+                     postScore.singlePosts);
+    }
+}
@@ -0,0 +1,80 @@
+package Android.Tetris;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a TetrisEngine dealing only I pieces and checks how the kick table
+ * set with setRotationKicks decides rotations against a wall. Compile this
+ * directory together with src/ against junit 4 and run it with JUnitCore.
+ * @author Zach Cotter
+ */
+public class TetrisEngineTest {
+
+    private static final int I_PIECE = 1;
+
+    /**
+     * Deals the same piece every time.
+     */
+    private static class Only implements PieceGenerator.Policy {
+
+        private final int piece;
+
+        Only(int piece) {
+            this.piece = piece;
+        }
+
+        @Override
+        public int next(FastRandom random) {
+            return piece;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    /**
+     * Builds an engine with an upright I piece pressed against the right
+     * wall, where turning it flat in place would leave the grid.
+     */
+    private static TetrisEngine uprightAgainstRightWall() {
+        PieceGenerator pieces = new PieceGenerator(1,
+                                                   new Only(I_PIECE),
+                                                   1);
+        TetrisEngine engine = new TetrisEngine(pieces);
+        for (int i = 0; i < 3; i++) {
+            engine.attemptToMoveCurrent(0);
+        }
+        assertTrue(engine.attemptToRotateCurrent(true));
+        while (engine.attemptToMoveCurrent(1)) {
+            // slides to the wall
+        }
+        return engine;
+    }
+
+    @Test
+    public void rotationAgainstWallFailsWithoutKicks() {
+        TetrisEngine engine = uprightAgainstRightWall();
+        int orientation = engine.getCurrent().getOrientation();
+        assertFalse(engine.attemptToRotateCurrent(true));
+        assertEquals(orientation,
+                     engine.getCurrent().getOrientation());
+    }
+
+    @Test
+    public void wallKicksNudgeRotationAwayFromWall() {
+        TetrisEngine engine = uprightAgainstRightWall();
+        engine.setRotationKicks(Tetra.WALL_KICKS);
+        int orientation = engine.getCurrent().getOrientation();
+        assertTrue(engine.attemptToRotateCurrent(true));
+        Tetra current = engine.getCurrent();
+        assertEquals((orientation + 1) % 4,
+                     current.getOrientation());
+        assertTrue(current.inbounds());
+        assertEquals(Board.WIDTH - 1,
+                     current.findRightBound());
+    }
+}